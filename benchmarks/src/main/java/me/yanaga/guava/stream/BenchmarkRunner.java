@@ -0,0 +1,76 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the command line of JMH's own {@code Main}, including its help and
+ * listing options, and adds the GC profiler to every run unless it was already requested.
+ */
+public class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldHelp()) {
+			options.showHelp();
+			return;
+		}
+		if (options.shouldListProfilers()) {
+			options.listProfilers();
+			return;
+		}
+		if (options.shouldListResultFormats()) {
+			options.listResultFormats();
+			return;
+		}
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+		if (!hasGcProfiler(options)) {
+			builder.addProfiler(GCProfiler.class);
+		}
+		Runner runner = new Runner(builder.build());
+		if (options.shouldList()) {
+			runner.list();
+		} else if (options.shouldListWithParams()) {
+			runner.listWithParams(options);
+		} else {
+			runner.run();
+		}
+	}
+
+	private static boolean hasGcProfiler(CommandLineOptions options) {
+		for (ProfilerConfig profiler : options.getProfilers()) {
+			if (profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,206 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedMultiset;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.ImmutableTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class MoreCollectorsBenchmark {
+
+	private static final int DISTINCT_KEYS = 1024;
+
+	@Param({"10", "1000", "100000", "10000000"})
+	private int size;
+
+	@Param({"false", "true"})
+	private boolean parallel;
+
+	private List<Integer> elements;
+
+	@Setup
+	public void setUp() {
+		elements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			elements.add(i);
+		}
+		Collections.shuffle(elements, new Random(42));
+	}
+
+	private Stream<Integer> stream() {
+		return parallel ? elements.parallelStream() : elements.stream();
+	}
+
+	@Benchmark
+	public ImmutableList<Integer> collectorsToListThenCopy() {
+		return ImmutableList.copyOf(stream().collect(Collectors.toList()));
+	}
+
+	@Benchmark
+	public ImmutableList<Integer> toImmutableList() {
+		return stream().collect(MoreCollectors.toImmutableList());
+	}
+
+	@Benchmark
+	public ImmutableSet<Integer> toImmutableSet() {
+		return stream().collect(MoreCollectors.toImmutableSet());
+	}
+
+	@Benchmark
+	public ImmutableSortedSet<Integer> toImmutableSortedSet() {
+		return stream().collect(MoreCollectors.toImmutableSortedSet());
+	}
+
+	@Benchmark
+	public ImmutableSortedSet<Integer> toImmutableSortedSetWithComparator() {
+		return stream().collect(MoreCollectors.toImmutableSortedSet(Comparator.<Integer>reverseOrder()));
+	}
+
+	@Benchmark
+	public ImmutableMap<Integer, Integer> toImmutableMap() {
+		return stream().collect(MoreCollectors.toImmutableMap(i -> i, i -> i));
+	}
+
+	@Benchmark
+	public ImmutableSortedMap<Integer, Integer> toImmutableSortedMap() {
+		return stream().collect(MoreCollectors.toImmutableSortedMap(i -> i, i -> i));
+	}
+
+	@Benchmark
+	public ImmutableSortedMap<Integer, Integer> toImmutableSortedMapWithComparator() {
+		return stream().collect(MoreCollectors.toImmutableSortedMap(i -> i, i -> i, Comparator.<Integer>reverseOrder()));
+	}
+
+	@Benchmark
+	public ImmutableBiMap<Integer, Integer> toImmutableBiMap() {
+		return stream().collect(MoreCollectors.toImmutableBiMap(i -> i, i -> -i));
+	}
+
+	@Benchmark
+	public ImmutableMultiset<Integer> toImmutableMultiset() {
+		return stream().map(i -> i % DISTINCT_KEYS).collect(MoreCollectors.toImmutableMultiset());
+	}
+
+	@Benchmark
+	public ImmutableSortedMultiset<Integer> toImmutableSortedMultiset() {
+		return stream().map(i -> i % DISTINCT_KEYS).collect(MoreCollectors.toImmutableSortedMultiset());
+	}
+
+	@Benchmark
+	public ImmutableSortedMultiset<Integer> toImmutableSortedMultisetWithComparator() {
+		return stream().map(i -> i % DISTINCT_KEYS).collect(MoreCollectors.toImmutableSortedMultiset(Comparator.<Integer>reverseOrder()));
+	}
+
+	@Benchmark
+	public ImmutableMultimap<Integer, Integer> toImmutableMultimap() {
+		return stream().collect(MoreCollectors.toImmutableMultimap(i -> i % DISTINCT_KEYS, i -> i));
+	}
+
+	@Benchmark
+	public ImmutableListMultimap<Integer, Integer> toImmutableListMultimap() {
+		return stream().collect(MoreCollectors.toImmutableListMultimap(i -> i % DISTINCT_KEYS, i -> i));
+	}
+
+	@Benchmark
+	public ImmutableSetMultimap<Integer, Integer> toImmutableSetMultimap() {
+		return stream().collect(MoreCollectors.toImmutableSetMultimap(i -> i % DISTINCT_KEYS, i -> i));
+	}
+
+	@Benchmark
+	public ImmutableSetMultimap<Integer, Integer> toImmutableSetMultimapNaturalOrder() {
+		return stream().collect(MoreCollectors.toImmutableSetMultimapNaturalOrder(i -> i % DISTINCT_KEYS, i -> i));
+	}
+
+	@Benchmark
+	public ImmutableSetMultimap<Integer, Integer> toImmutableSetMultimapWithComparator() {
+		return stream().collect(MoreCollectors.toImmutableSetMultimap(
+				i -> i % DISTINCT_KEYS,
+				i -> i,
+				Comparator.<Integer>reverseOrder(),
+				Comparator.<Integer>reverseOrder()));
+	}
+
+	@Benchmark
+	public ImmutableTable<Integer, Integer, Integer> toImmutableTable() {
+		return stream().collect(MoreCollectors.toImmutableTable(i -> i / DISTINCT_KEYS, i -> i % DISTINCT_KEYS, i -> i));
+	}
+
+	@Benchmark
+	public ImmutableTable<Integer, Integer, Integer> toImmutableSortedTable() {
+		return stream().collect(MoreCollectors.toImmutableSortedTable(i -> i / DISTINCT_KEYS, i -> i % DISTINCT_KEYS, i -> i));
+	}
+
+	@Benchmark
+	public ImmutableTable<Integer, Integer, Integer> toImmutableSortedTableWithComparator() {
+		return stream().collect(MoreCollectors.toImmutableSortedTable(
+				i -> i / DISTINCT_KEYS,
+				i -> i % DISTINCT_KEYS,
+				i -> i,
+				Comparator.<Integer>reverseOrder(),
+				Comparator.<Integer>reverseOrder()));
+	}
+
+	@Benchmark
+	public ImmutableSortedSet<Integer> toImmutableTopK() {
+		return stream().collect(MoreCollectors.toImmutableTopK(DISTINCT_KEYS, Comparator.<Integer>reverseOrder()));
+	}
+
+	@Benchmark
+	public ImmutableList<Integer> toImmutableTopKList() {
+		return stream().collect(MoreCollectors.toImmutableTopKList(DISTINCT_KEYS, Comparator.<Integer>reverseOrder()));
+	}
+
+}
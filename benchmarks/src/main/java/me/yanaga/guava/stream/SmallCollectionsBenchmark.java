@@ -0,0 +1,115 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * Collects the tiny sequential streams typical of request handlers; run with the GC profiler of
+ * {@link BenchmarkRunner} to compare the allocation rate against the Guava builders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmallCollectionsBenchmark {
+
+	private static final Object CONTAINER = new Object();
+
+	/**
+	 * Collects into a shared container and does nothing, to measure what the stream pipeline allocates on its own.
+	 */
+	private static final Collector<Object, ?, Object> NOTHING = Collector.of(
+			() -> CONTAINER,
+			(container, element) -> {
+			},
+			(container, container2) -> container,
+			container -> container);
+
+	@Param({"0", "1", "4"})
+	private int size;
+
+	private List<Integer> elements;
+
+	@Setup
+	public void setUp() {
+		elements = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			elements.add(i);
+		}
+	}
+
+	@Benchmark
+	public Object pipelineBaseline() {
+		return elements.stream().collect(NOTHING);
+	}
+
+	@Benchmark
+	public ImmutableList<Integer> builderToList() {
+		ImmutableList.Builder<Integer> builder = ImmutableList.builder();
+		elements.forEach(builder::add);
+		return builder.build();
+	}
+
+	@Benchmark
+	public ImmutableList<Integer> toImmutableList() {
+		return elements.stream().collect(MoreCollectors.toImmutableList());
+	}
+
+	@Benchmark
+	public ImmutableSet<Integer> toImmutableSet() {
+		return elements.stream().collect(MoreCollectors.toImmutableSet());
+	}
+
+	@Benchmark
+	public ImmutableMap<Integer, Integer> builderToMap() {
+		ImmutableMap.Builder<Integer, Integer> builder = ImmutableMap.builder();
+		elements.forEach(i -> builder.put(i, i));
+		return builder.build();
+	}
+
+	@Benchmark
+	public ImmutableMap<Integer, Integer> toImmutableMap() {
+		return elements.stream().collect(MoreCollectors.toImmutableMap(Function.identity(), Function.identity()));
+	}
+
+}
@@ -0,0 +1,95 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import com.google.common.collect.ImmutableMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Accumulation container of the array table collector over explicit key universes. Values go straight into the flat
+ * array the table is built on, so the finisher hands it over without copying it. Concurrent writers serialize on one
+ * of a few lock stripes chosen by cell position, which also makes the duplicate check and the write a single step.
+ * Reads only happen once the stream has joined every writer.
+ */
+final class ArrayTableBuffer<R, C, V> {
+
+	private static final int MAX_STRIPES = 64;
+
+	private final ImmutableMap<R, Integer> rowIndex;
+
+	private final ImmutableMap<C, Integer> columnIndex;
+
+	private final Object[] values;
+
+	private final Object[] locks;
+
+	ArrayTableBuffer(ImmutableMap<R, Integer> rowIndex, ImmutableMap<C, Integer> columnIndex) {
+		this.rowIndex = rowIndex;
+		this.columnIndex = columnIndex;
+		this.values = new Object[ImmutableArrayTable.checkedArea(rowIndex.size(), columnIndex.size())];
+		this.locks = new Object[Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(values.length, 1)))];
+		for (int i = 0; i < locks.length; i++) {
+			locks[i] = new Object();
+		}
+	}
+
+	void put(R row, C column, V value) {
+		Integer rowPosition = rowIndex.get(row);
+		Integer columnPosition = columnIndex.get(column);
+		if (rowPosition == null) {
+			throw new IllegalArgumentException(String.format("Row key %s is not one of the expected row keys", row));
+		}
+		if (columnPosition == null) {
+			throw new IllegalArgumentException(String.format("Column key %s is not one of the expected column keys", column));
+		}
+		putAt(rowPosition * columnIndex.size() + columnPosition, checkNotNull(value));
+	}
+
+	ArrayTableBuffer<R, C, V> combine(ArrayTableBuffer<R, C, V> other) {
+		for (int i = 0; i < values.length; i++) {
+			Object value = other.values[i];
+			if (value != null) {
+				putAt(i, value);
+			}
+		}
+		return this;
+	}
+
+	ImmutableArrayTable<R, C, V> toTable() {
+		return new ImmutableArrayTable<>(rowIndex, columnIndex, values);
+	}
+
+	private void putAt(int position, Object value) {
+		Object previous;
+		synchronized (locks[position & (locks.length - 1)]) {
+			previous = values[position];
+			if (previous == null) {
+				values[position] = value;
+				return;
+			}
+		}
+		throw new IllegalArgumentException(String.format("Duplicate key: (row=%s, column=%s), values: [%s, %s].",
+				rowIndex.keySet().asList().get(position / columnIndex.size()),
+				columnIndex.keySet().asList().get(position % columnIndex.size()),
+				previous, value));
+	}
+
+}
@@ -0,0 +1,168 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Accumulation container of the async collectors. Every input reserves a result slot in a {@link SegmentedBuffer}
+ * and its stage is started right away from the accumulator, so the stages run while the stream is still being
+ * traversed; the stage fills the slot on completion. Combining only links the segments, and the finisher merely seals
+ * the container: the last stage to complete, or the seal itself when every stage already has, builds the result.
+ * <p>
+ * Everything shared by the containers of one collection lives in its {@link Completion}: the count of outstanding
+ * stages, the result, and, with bounded concurrency, the permits and the queue of inputs waiting for one. Each
+ * completion starts the next queued input; starts are trampolined through a work-in-progress counter, so stages that
+ * complete synchronously do not grow the stack. The first failure completes the result exceptionally and stops
+ * further starts. No thread is ever blocked, which makes the collectors equally suitable for platform and virtual
+ * threads.
+ */
+final class AsyncSlots<I, R, S> {
+
+	private final Completion<I, R, S> completion;
+
+	private SegmentedBuffer<R> slots = new SegmentedBuffer<>();
+
+	AsyncSlots(Completion<I, R, S> completion) {
+		this.completion = completion;
+	}
+
+	void add(I input) {
+		if (completion.result.isDone()) {
+			return;
+		}
+		Object[] segment = slots.addSlot();
+		completion.submit(input, segment, slots.tailSize() - 1);
+	}
+
+	AsyncSlots<I, R, S> combine(AsyncSlots<I, R, S> other) {
+		slots = slots.combine(other.slots);
+		return this;
+	}
+
+	CompletableFuture<S> seal() {
+		return completion.seal(slots);
+	}
+
+	static final class Completion<I, R, S> {
+
+		private final Function<? super I, ? extends CompletionStage<? extends R>> launcher;
+
+		private final Function<? super Collection<R>, ? extends S> finisher;
+
+		private final boolean bounded;
+
+		private final AtomicInteger permits;
+
+		private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger wip = new AtomicInteger();
+
+		private final AtomicInteger outstanding = new AtomicInteger(1);
+
+		private final CompletableFuture<S> result = new CompletableFuture<>();
+
+		private Collection<R> sealed;
+
+		Completion(Function<? super I, ? extends CompletionStage<? extends R>> launcher, int maxConcurrency,
+				Function<? super Collection<R>, ? extends S> finisher) {
+			this.launcher = launcher;
+			this.finisher = finisher;
+			this.bounded = maxConcurrency != Integer.MAX_VALUE;
+			this.permits = new AtomicInteger(maxConcurrency);
+		}
+
+		private void submit(I input, Object[] segment, int index) {
+			outstanding.incrementAndGet();
+			if (bounded) {
+				pending.offer(() -> launch(input, segment, index));
+				drain();
+			} else {
+				launch(input, segment, index);
+			}
+		}
+
+		private void launch(I input, Object[] segment, int index) {
+			try {
+				launcher.apply(input).whenComplete((value, failure) -> {
+					if (failure != null) {
+						result.completeExceptionally(failure);
+					} else {
+						segment[index] = value;
+						arrive();
+					}
+					if (bounded) {
+						permits.incrementAndGet();
+						drain();
+					}
+				});
+			} catch (RuntimeException e) {
+				result.completeExceptionally(e);
+			}
+		}
+
+		private void drain() {
+			if (wip.getAndIncrement() != 0) {
+				return;
+			}
+			int missed = 1;
+			do {
+				while (permits.get() > 0) {
+					Runnable start = pending.poll();
+					if (start == null) {
+						break;
+					}
+					if (result.isDone()) {
+						pending.clear();
+						break;
+					}
+					permits.decrementAndGet();
+					start.run();
+				}
+				missed = wip.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private CompletableFuture<S> seal(Collection<R> slots) {
+			sealed = slots;
+			arrive();
+			return result;
+		}
+
+		private void arrive() {
+			if (outstanding.decrementAndGet() == 0) {
+				try {
+					result.complete(finisher.apply(sealed));
+				} catch (RuntimeException e) {
+					result.completeExceptionally(e);
+				}
+			}
+		}
+
+	}
+
+}
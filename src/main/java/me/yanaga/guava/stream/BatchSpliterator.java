@@ -0,0 +1,73 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Groups consecutive elements of a source spliterator into {@code ImmutableList} batches. A split batches its own
+ * half of the source, so batches never straddle a split boundary and the last batch of a split may be short.
+ */
+final class BatchSpliterator<T> implements Spliterator<ImmutableList<T>> {
+
+	private final Spliterator<T> source;
+
+	private final int batchSize;
+
+	BatchSpliterator(Spliterator<T> source, int batchSize) {
+		this.source = source;
+		this.batchSize = batchSize;
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super ImmutableList<T>> action) {
+		SegmentedBuffer<T> batch = new SegmentedBuffer<>(batchSize);
+		while (batch.size() < batchSize && source.tryAdvance(batch::add)) {
+			// keep filling the batch
+		}
+		if (batch.isEmpty()) {
+			return false;
+		}
+		action.accept(ImmutableList.copyOf(batch));
+		return true;
+	}
+
+	@Override
+	public Spliterator<ImmutableList<T>> trySplit() {
+		Spliterator<T> prefix = source.trySplit();
+		return prefix == null ? null : new BatchSpliterator<>(prefix, batchSize);
+	}
+
+	@Override
+	public long estimateSize() {
+		long size = source.estimateSize();
+		return size == Long.MAX_VALUE ? size : (size + batchSize - 1) / batchSize;
+	}
+
+	@Override
+	public int characteristics() {
+		return (source.characteristics() & ORDERED) | NONNULL | IMMUTABLE;
+	}
+
+}
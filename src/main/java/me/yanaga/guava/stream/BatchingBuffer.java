@@ -0,0 +1,99 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+/**
+ * Accumulation container for the batching collectors. Elements are gathered into a {@link SegmentedBuffer} sized
+ * for one batch, which is handed to the sink as an {@code ImmutableList} as soon as it is full by count or by
+ * estimated bytes, so at most one pending batch per split is ever retained. An element that would push the pending
+ * batch over the byte budget flushes it first, so only an element over budget on its own makes a batch exceed it. The
+ * batch is only allocated by the
+ * first element after a flush, so splits that stay empty, and the end of a stream that just filled a batch, allocate
+ * nothing.
+ */
+final class BatchingBuffer<T> {
+
+	private final int maxElements;
+
+	private final long maxBytes;
+
+	private final ToLongFunction<? super T> sizeEstimator;
+
+	private final Consumer<? super ImmutableList<T>> sink;
+
+	private SegmentedBuffer<T> batch;
+
+	private long bytes;
+
+	private long flushed;
+
+	BatchingBuffer(int maxElements, long maxBytes, ToLongFunction<? super T> sizeEstimator, Consumer<? super ImmutableList<T>> sink) {
+		this.maxElements = maxElements;
+		this.maxBytes = maxBytes;
+		this.sizeEstimator = sizeEstimator;
+		this.sink = sink;
+	}
+
+	void add(T t) {
+		long elementBytes = sizeEstimator.applyAsLong(t);
+		if (batch != null && elementBytes > maxBytes - bytes) {
+			flush();
+		}
+		if (batch == null) {
+			batch = new SegmentedBuffer<>(maxElements);
+		}
+		batch.add(t);
+		bytes += elementBytes;
+		if (batch.size() >= maxElements || bytes >= maxBytes) {
+			flush();
+		}
+	}
+
+	BatchingBuffer<T> combine(BatchingBuffer<T> other) {
+		flushed += other.flushed;
+		if (other.batch != null) {
+			for (T t : other.batch) {
+				add(t);
+			}
+		}
+		return this;
+	}
+
+	long finish() {
+		flush();
+		return flushed;
+	}
+
+	private void flush() {
+		if (batch != null) {
+			sink.accept(ImmutableList.copyOf(batch));
+			flushed += batch.size();
+			batch = null;
+			bytes = 0;
+		}
+	}
+
+}
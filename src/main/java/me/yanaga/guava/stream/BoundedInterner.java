@@ -0,0 +1,66 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Interner;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link Interner} that retains at most a bounded number of canonical instances, evicting the least recently used
+ * ones as Guava's size-bounded cache does. An evicted instance stays valid wherever it has already been stored; a
+ * later equal sample simply becomes the new canonical instance. Instances are thread-safe and meant to be shared by
+ * every collector that handles the same kind of values.
+ */
+public final class BoundedInterner<E> implements Interner<E> {
+
+	private final LoadingCache<E, E> cache;
+
+	private BoundedInterner(int maximumSize) {
+		this.cache = CacheBuilder.newBuilder()
+				.maximumSize(maximumSize)
+				.build(new CacheLoader<E, E>() {
+					@Override
+					public E load(E key) {
+						return key;
+					}
+				});
+	}
+
+	public static <E> BoundedInterner<E> create(int maximumSize) {
+		checkArgument(maximumSize > 0, "maximumSize must be positive but was: %s", maximumSize);
+		return new BoundedInterner<>(maximumSize);
+	}
+
+	@Override
+	public E intern(E sample) {
+		return cache.getUnchecked(checkNotNull(sample));
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+}
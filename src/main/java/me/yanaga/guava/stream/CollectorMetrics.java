@@ -0,0 +1,115 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.Objects;
+
+/**
+ * Per-phase counters and timings of a single collection. A split is one container created by the supplier; its
+ * size is the number of elements accumulated into it directly, so an uneven {@link #splitSizes()} points to a badly
+ * splitting source. Elements copied counts the elements held by the right-hand container of every combine, which is
+ * what a copying combiner has to move; linking combiners move fewer.
+ */
+public final class CollectorMetrics {
+
+	private final long supplierCalls;
+
+	private final long accumulations;
+
+	private final long combines;
+
+	private final long elementsCopied;
+
+	private final long supplierNanos;
+
+	private final long accumulatorNanos;
+
+	private final long combinerNanos;
+
+	private final long finisherNanos;
+
+	private final ImmutableLongArray splitSizes;
+
+	CollectorMetrics(long supplierCalls, long accumulations, long combines, long elementsCopied, long supplierNanos,
+			long accumulatorNanos, long combinerNanos, long finisherNanos, ImmutableLongArray splitSizes) {
+		this.supplierCalls = supplierCalls;
+		this.accumulations = accumulations;
+		this.combines = combines;
+		this.elementsCopied = elementsCopied;
+		this.supplierNanos = supplierNanos;
+		this.accumulatorNanos = accumulatorNanos;
+		this.combinerNanos = combinerNanos;
+		this.finisherNanos = finisherNanos;
+		this.splitSizes = splitSizes;
+	}
+
+	public long supplierCalls() {
+		return supplierCalls;
+	}
+
+	public long accumulations() {
+		return accumulations;
+	}
+
+	public long combines() {
+		return combines;
+	}
+
+	public long elementsCopied() {
+		return elementsCopied;
+	}
+
+	public long supplierNanos() {
+		return supplierNanos;
+	}
+
+	public long accumulatorNanos() {
+		return accumulatorNanos;
+	}
+
+	public long combinerNanos() {
+		return combinerNanos;
+	}
+
+	public long finisherNanos() {
+		return finisherNanos;
+	}
+
+	public ImmutableLongArray splitSizes() {
+		return splitSizes;
+	}
+
+	@Override
+	public String toString() {
+		return Objects.toStringHelper(this)
+				.add("supplierCalls", supplierCalls)
+				.add("accumulations", accumulations)
+				.add("combines", combines)
+				.add("elementsCopied", elementsCopied)
+				.add("supplierNanos", supplierNanos)
+				.add("accumulatorNanos", accumulatorNanos)
+				.add("combinerNanos", combinerNanos)
+				.add("finisherNanos", finisherNanos)
+				.add("splitSizes", splitSizes)
+				.toString();
+	}
+
+}
@@ -0,0 +1,82 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Accumulation container for the columnar collector. Every split fills its own segment of each column; combining
+ * only links the segments, and the finisher concatenates each column once into an exactly sized array.
+ */
+final class ColumnBuffer<T> {
+
+	private final ColumnSchema<? super T> schema;
+
+	private final List<Object[]> segments = new ArrayList<>();
+
+	private final Object[] current;
+
+	private int size;
+
+	@SuppressWarnings("unchecked")
+	ColumnBuffer(ColumnSchema<? super T> schema) {
+		this.schema = schema;
+		ImmutableList<? extends ColumnSchema.Column<? super T>> columns = schema.columns();
+		this.current = new Object[columns.size()];
+		for (int i = 0; i < current.length; i++) {
+			current[i] = columns.get(i).newSegment();
+		}
+		segments.add(current);
+	}
+
+	@SuppressWarnings("unchecked")
+	void add(T t) {
+		ImmutableList<? extends ColumnSchema.Column<? super T>> columns = schema.columns();
+		for (int i = 0; i < current.length; i++) {
+			((ColumnSchema.Column<T>) columns.get(i)).add(current[i], t);
+		}
+		size++;
+	}
+
+	ColumnBuffer<T> combine(ColumnBuffer<T> other) {
+		segments.addAll(other.segments);
+		size += other.size;
+		return this;
+	}
+
+	ImmutableColumns build() {
+		ImmutableList<? extends ColumnSchema.Column<? super T>> columns = schema.columns();
+		Object[] data = new Object[columns.size()];
+		List<Object> column = new ArrayList<>(segments.size());
+		for (int i = 0; i < data.length; i++) {
+			column.clear();
+			for (Object[] segment : segments) {
+				column.add(segment[i]);
+			}
+			data[i] = columns.get(i).concat(column, size);
+		}
+		return new ImmutableColumns(schema.index(), data, size);
+	}
+
+}
@@ -0,0 +1,249 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Named field extractors that {@link MoreCollectors#toImmutableColumns(ColumnSchema)} applies to every record.
+ * Numeric fields are extracted unboxed into primitive columns; any other field goes into a reference column.
+ */
+public final class ColumnSchema<T> {
+
+	private final ImmutableList<Column<T>> columns;
+
+	private final ImmutableMap<String, Integer> index;
+
+	private ColumnSchema(ImmutableList<Column<T>> columns) {
+		this.columns = columns;
+		ImmutableMap.Builder<String, Integer> builder = ImmutableMap.builder();
+		for (int i = 0; i < columns.size(); i++) {
+			builder.put(columns.get(i).name, i);
+		}
+		this.index = builder.build();
+	}
+
+	public static <T> Builder<T> builder() {
+		return new Builder<>();
+	}
+
+	ImmutableList<Column<T>> columns() {
+		return columns;
+	}
+
+	ImmutableMap<String, Integer> index() {
+		return index;
+	}
+
+	public static final class Builder<T> {
+
+		private final ImmutableList.Builder<Column<T>> columns = ImmutableList.builder();
+
+		private Builder() {
+		}
+
+		public Builder<T> intColumn(String name, ToIntFunction<? super T> extractor) {
+			columns.add(new IntColumn<>(checkNotNull(name), checkNotNull(extractor)));
+			return this;
+		}
+
+		public Builder<T> longColumn(String name, ToLongFunction<? super T> extractor) {
+			columns.add(new LongColumn<>(checkNotNull(name), checkNotNull(extractor)));
+			return this;
+		}
+
+		public Builder<T> doubleColumn(String name, ToDoubleFunction<? super T> extractor) {
+			columns.add(new DoubleColumn<>(checkNotNull(name), checkNotNull(extractor)));
+			return this;
+		}
+
+		/**
+		 * Adds a reference column. Like every Guava immutable collection, the column rejects nulls: a record whose
+		 * extractor returns null fails the collection with a {@link NullPointerException} naming the column and the
+		 * record, as soon as the record is collected.
+		 */
+		public Builder<T> column(String name, Function<? super T, ?> extractor) {
+			columns.add(new ObjectColumn<>(checkNotNull(name), checkNotNull(extractor)));
+			return this;
+		}
+
+		public ColumnSchema<T> build() {
+			return new ColumnSchema<>(columns.build());
+		}
+
+	}
+
+	/**
+	 * A column kind: how to start a segment of it, extract a record into it, and concatenate the segments of every
+	 * split into the final column with a single exactly sized copy.
+	 */
+	abstract static class Column<T> {
+
+		final String name;
+
+		Column(String name) {
+			this.name = name;
+		}
+
+		abstract Object newSegment();
+
+		abstract void add(Object segment, T t);
+
+		abstract Object concat(List<Object> segments, int size);
+
+	}
+
+	private static final class IntColumn<T> extends Column<T> {
+
+		private final ToIntFunction<? super T> extractor;
+
+		IntColumn(String name, ToIntFunction<? super T> extractor) {
+			super(name);
+			this.extractor = extractor;
+		}
+
+		@Override
+		Object newSegment() {
+			return ImmutableIntArray.builder();
+		}
+
+		@Override
+		void add(Object segment, T t) {
+			((ImmutableIntArray.Builder) segment).add(extractor.applyAsInt(t));
+		}
+
+		@Override
+		Object concat(List<Object> segments, int size) {
+			ImmutableIntArray.Builder builder = ImmutableIntArray.builder(size);
+			for (Object segment : segments) {
+				builder.addAll((ImmutableIntArray.Builder) segment);
+			}
+			return builder.build();
+		}
+
+	}
+
+	private static final class LongColumn<T> extends Column<T> {
+
+		private final ToLongFunction<? super T> extractor;
+
+		LongColumn(String name, ToLongFunction<? super T> extractor) {
+			super(name);
+			this.extractor = extractor;
+		}
+
+		@Override
+		Object newSegment() {
+			return ImmutableLongArray.builder();
+		}
+
+		@Override
+		void add(Object segment, T t) {
+			((ImmutableLongArray.Builder) segment).add(extractor.applyAsLong(t));
+		}
+
+		@Override
+		Object concat(List<Object> segments, int size) {
+			ImmutableLongArray.Builder builder = ImmutableLongArray.builder(size);
+			for (Object segment : segments) {
+				builder.addAll((ImmutableLongArray.Builder) segment);
+			}
+			return builder.build();
+		}
+
+	}
+
+	private static final class DoubleColumn<T> extends Column<T> {
+
+		private final ToDoubleFunction<? super T> extractor;
+
+		DoubleColumn(String name, ToDoubleFunction<? super T> extractor) {
+			super(name);
+			this.extractor = extractor;
+		}
+
+		@Override
+		Object newSegment() {
+			return ImmutableDoubleArray.builder();
+		}
+
+		@Override
+		void add(Object segment, T t) {
+			((ImmutableDoubleArray.Builder) segment).add(extractor.applyAsDouble(t));
+		}
+
+		@Override
+		Object concat(List<Object> segments, int size) {
+			ImmutableDoubleArray.Builder builder = ImmutableDoubleArray.builder(size);
+			for (Object segment : segments) {
+				builder.addAll((ImmutableDoubleArray.Builder) segment);
+			}
+			return builder.build();
+		}
+
+	}
+
+	private static final class ObjectColumn<T> extends Column<T> {
+
+		private final Function<? super T, ?> extractor;
+
+		ObjectColumn(String name, Function<? super T, ?> extractor) {
+			super(name);
+			this.extractor = extractor;
+		}
+
+		@Override
+		Object newSegment() {
+			return new SegmentedBuffer<Object>();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		void add(Object segment, T t) {
+			Object value = extractor.apply(t);
+			if (value == null) {
+				throw new NullPointerException(String.format("null value in column %s for record %s", name, t));
+			}
+			((SegmentedBuffer<Object>) segment).add(value);
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		Object concat(List<Object> segments, int size) {
+			SegmentedBuffer<Object> buffer = (SegmentedBuffer<Object>) segments.get(0);
+			for (int i = 1; i < segments.size(); i++) {
+				buffer = buffer.combine((SegmentedBuffer<Object>) segments.get(i));
+			}
+			return ImmutableList.copyOf(buffer);
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Accumulation container for the compact list multimap collector. Each split hashes its own keys into a
+ * {@link KeyIndex} and records the key position of every value, so the hashing work runs in parallel. Combining
+ * renumbers the right-hand positions through a lookup per distinct key, and the build is a stable counting sort by
+ * key position that lays the values out in compressed sparse row order without another hash probe.
+ */
+final class CompactMultimapBuffer<K, V> {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final KeyIndex<K> keys = new KeyIndex<>();
+
+	private int[] positions = new int[INITIAL_CAPACITY];
+
+	private Object[] values = new Object[INITIAL_CAPACITY];
+
+	private int size;
+
+	void put(K key, V value) {
+		checkNotNull(key);
+		checkNotNull(value);
+		ensureCapacity(1);
+		positions[size] = keys.add(key);
+		values[size++] = value;
+	}
+
+	CompactMultimapBuffer<K, V> combine(CompactMultimapBuffer<K, V> other) {
+		int[] renumbered = new int[other.keys.size()];
+		for (int i = 0; i < renumbered.length; i++) {
+			renumbered[i] = keys.add(other.keys.get(i));
+		}
+		ensureCapacity(other.size);
+		for (int i = 0; i < other.size; i++) {
+			positions[size + i] = renumbered[other.positions[i]];
+		}
+		System.arraycopy(other.values, 0, values, size, other.size);
+		size += other.size;
+		return this;
+	}
+
+	ImmutableCompactListMultimap<K, V> build() {
+		int[] offsets = new int[keys.size() + 1];
+		for (int i = 0; i < size; i++) {
+			offsets[positions[i] + 1]++;
+		}
+		for (int i = 0; i < keys.size(); i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] cursors = Arrays.copyOf(offsets, keys.size());
+		Object[] sorted = new Object[size];
+		for (int i = 0; i < size; i++) {
+			sorted[cursors[positions[i]]++] = values[i];
+		}
+		keys.trimToSize();
+		return new ImmutableCompactListMultimap<>(keys, offsets, sorted);
+	}
+
+	private void ensureCapacity(int additional) {
+		if (size + additional > values.length) {
+			int capacity = Math.max(size + additional, values.length + (values.length >> 1));
+			positions = Arrays.copyOf(positions, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Maps;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable {@link Map} whose string keys are packed like the members of a {@link CompactStringSet}, with the
+ * values in a parallel array. {@link #get(Object)} probes the packed keys without decoding them; iteration, in
+ * insertion order, decodes a new {@code String} for every key.
+ */
+public final class CompactStringMap<V> extends AbstractMap<String, V> {
+
+	private final PackedStrings keys;
+
+	private final Object[] values;
+
+	private transient Set<Map.Entry<String, V>> entrySet;
+
+	CompactStringMap(PackedStrings keys, Object[] values) {
+		this.keys = keys;
+		this.values = values;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		int index = keys.indexOf(key);
+		return index < 0 ? null : (V) values[index];
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return keys.indexOf(key) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return value != null && Arrays.asList(values).contains(value);
+	}
+
+	@Override
+	public int size() {
+		return keys.size();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return new CompactStringSet(keys);
+	}
+
+	@Override
+	public Set<Map.Entry<String, V>> entrySet() {
+		Set<Map.Entry<String, V>> result = entrySet;
+		if (result == null) {
+			result = entrySet = new AbstractSet<Map.Entry<String, V>>() {
+				@Override
+				public Iterator<Map.Entry<String, V>> iterator() {
+					return new Iterator<Map.Entry<String, V>>() {
+						private int index;
+
+						@Override
+						public boolean hasNext() {
+							return index < keys.size();
+						}
+
+						@Override
+						@SuppressWarnings("unchecked")
+						public Map.Entry<String, V> next() {
+							if (!hasNext()) {
+								throw new NoSuchElementException();
+							}
+							int current = index++;
+							return Maps.immutableEntry(keys.get(current), (V) values[current]);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return keys.size();
+				}
+			};
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,80 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable {@link java.util.Set} of strings packed into a single UTF-8 byte array, with an open-addressing table
+ * of positions on top. A member costs its encoded bytes plus a few {@code int}s instead of a {@code String} object
+ * and its backing array, and {@link #contains(Object)} never decodes. Iteration, in insertion order, decodes a new
+ * {@code String} for every member.
+ */
+public final class CompactStringSet extends AbstractSet<String> {
+
+	private final PackedStrings strings;
+
+	CompactStringSet(PackedStrings strings) {
+		this.strings = strings;
+	}
+
+	@Override
+	public boolean contains(Object object) {
+		return strings.indexOf(object) >= 0;
+	}
+
+	@Override
+	public int size() {
+		return strings.size();
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < strings.size();
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return strings.get(index++);
+			}
+		};
+	}
+
+	@Override
+	public int hashCode() {
+		int hashCode = 0;
+		for (int i = 0; i < strings.size(); i++) {
+			hashCode += strings.hash(i);
+		}
+		return hashCode;
+	}
+
+}
@@ -0,0 +1,83 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Accumulation container for the multiset collectors. Every distinct element is stored once, next to a primitive
+ * count that is incremented in place, so memory is bounded by the number of distinct elements rather than by the
+ * number of occurrences. Elements are kept in first-occurrence order in a {@link KeyIndex}, whose positions index the
+ * array of counts.
+ */
+final class CountingBuffer<E> {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private final KeyIndex<E> elements = new KeyIndex<>();
+
+	private int[] counts = new int[INITIAL_CAPACITY];
+
+	void add(E element, int occurrences) {
+		checkNotNull(element);
+		if (occurrences < 0) {
+			throw new IllegalArgumentException(String.format("occurrences cannot be negative: %s", occurrences));
+		}
+		if (occurrences == 0) {
+			return;
+		}
+		int size = elements.size();
+		int position = elements.add(element);
+		if (position == size) {
+			if (size == counts.length) {
+				counts = Arrays.copyOf(counts, size * 2);
+			}
+			counts[position] = occurrences;
+		} else {
+			long count = (long) counts[position] + occurrences;
+			if (count > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException(String.format("too many occurrences: %s", count));
+			}
+			counts[position] = (int) count;
+		}
+	}
+
+	CountingBuffer<E> combine(CountingBuffer<E> other) {
+		for (int i = 0; i < other.size(); i++) {
+			add(other.elements.get(i), other.counts[i]);
+		}
+		return this;
+	}
+
+	int size() {
+		return elements.size();
+	}
+
+	void forEach(ObjIntConsumer<? super E> consumer) {
+		for (int i = 0; i < size(); i++) {
+			consumer.accept(elements.get(i), counts[i]);
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Spliterator over the elements of a random-access list of groups, such as the entries of a multiset or the rows of
+ * a table. The cumulative group sizes turn every element into a position, so a split halves the remaining
+ * positions with a binary search and reports exact sizes, like an {@code ArrayList} spliterator does, without
+ * expanding the groups. A group is expanded into a list view only when iteration reaches it. When groups must not
+ * be torn apart, splits are moved to the nearest group boundary.
+ */
+final class GroupedSpliterator<G, E> implements Spliterator<E> {
+
+	private final List<? extends G> groups;
+
+	private final long[] ends;
+
+	private final Function<? super G, ? extends List<? extends E>> expander;
+
+	private final boolean splitAtGroups;
+
+	private final int characteristics;
+
+	private long position;
+
+	private final long end;
+
+	private int group;
+
+	private List<? extends E> elements;
+
+	private GroupedSpliterator(List<? extends G> groups, long[] ends, Function<? super G, ? extends List<? extends E>> expander,
+			boolean splitAtGroups, int characteristics, long position, long end) {
+		this.groups = groups;
+		this.ends = ends;
+		this.expander = expander;
+		this.splitAtGroups = splitAtGroups;
+		this.characteristics = characteristics;
+		this.position = position;
+		this.end = end;
+		this.group = groupOf(position);
+	}
+
+	static <G, E> GroupedSpliterator<G, E> of(List<? extends G> groups, long[] sizes,
+			Function<? super G, ? extends List<? extends E>> expander, boolean splitAtGroups, int characteristics) {
+		long[] ends = new long[sizes.length];
+		long total = 0;
+		for (int i = 0; i < sizes.length; i++) {
+			total += sizes[i];
+			ends[i] = total;
+		}
+		return new GroupedSpliterator<>(groups, ends, expander, splitAtGroups, characteristics, 0, total);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super E> action) {
+		if (position >= end) {
+			return false;
+		}
+		while (ends[group] <= position) {
+			group++;
+			elements = null;
+		}
+		if (elements == null) {
+			elements = expander.apply(groups.get(group));
+		}
+		action.accept(elements.get((int) (position - start(group))));
+		position++;
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super E> action) {
+		while (tryAdvance(action)) {
+			// tryAdvance walks the current group until the end position
+		}
+	}
+
+	@Override
+	public Spliterator<E> trySplit() {
+		if (end - position < 2) {
+			return null;
+		}
+		long middle = (position + end) >>> 1;
+		if (splitAtGroups) {
+			int middleGroup = groupOf(middle);
+			long start = start(middleGroup);
+			middle = middle - start <= ends[middleGroup] - middle ? start : ends[middleGroup];
+		}
+		if (middle <= position || middle >= end) {
+			return null;
+		}
+		Spliterator<E> prefix = new GroupedSpliterator<>(groups, ends, expander, splitAtGroups, characteristics, position, middle);
+		position = middle;
+		group = groupOf(middle);
+		elements = null;
+		return prefix;
+	}
+
+	@Override
+	public long estimateSize() {
+		return end - position;
+	}
+
+	@Override
+	public int characteristics() {
+		return characteristics | ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+	}
+
+	private long start(int group) {
+		return group == 0 ? 0 : ends[group - 1];
+	}
+
+	private int groupOf(long position) {
+		int index = Arrays.binarySearch(ends, position);
+		return index < 0 ? -index - 1 : index + 1;
+	}
+
+}
@@ -0,0 +1,219 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Accumulation container for the heavy-hitters collectors, a Space-Saving sketch of a fixed number of counters. A
+ * monitored element has its counter incremented in place; an unmonitored one takes over the smallest counter and
+ * increments it, so every count is an overestimate by at most the total divided by the number of counters, and no
+ * element occurring more often than that is ever missing. Elements live in a {@link KeyIndex} whose positions index
+ * the counts, and a min-heap of positions keeps the smallest counter at hand; taking it over replaces the element at
+ * its position. Two sketches merge by adding counts, an element missing from a full sketch being credited with that
+ * sketch's smallest count, and keeping the largest.
+ */
+final class HeavyHittersSketch<E> {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private final int capacity;
+
+	private KeyIndex<E> elements = new KeyIndex<>();
+
+	private long[] counts = new long[0];
+
+	private int[] heap = new int[0];
+
+	private int[] heapIndex = new int[0];
+
+	private long total;
+
+	HeavyHittersSketch(int capacity) {
+		this.capacity = capacity;
+	}
+
+	void add(E element) {
+		checkNotNull(element);
+		total++;
+		int size = elements.size();
+		int position;
+		if (size < capacity) {
+			position = elements.add(element);
+			if (position == size) {
+				insert(position, 1);
+				return;
+			}
+		} else {
+			position = elements.indexOf(element);
+			if (position < 0) {
+				position = heap[0];
+				elements.replace(position, element);
+			}
+		}
+		counts[position]++;
+		siftDown(heapIndex[position]);
+	}
+
+	HeavyHittersSketch<E> combine(HeavyHittersSketch<E> other) {
+		int size = elements.size();
+		int otherSize = other.elements.size();
+		long minimum = size == capacity ? counts[heap[0]] : 0;
+		long otherMinimum = otherSize == other.capacity ? other.counts[other.heap[0]] : 0;
+		Object[] mergedElements = new Object[size + otherSize];
+		long[] mergedCounts = new long[size + otherSize];
+		int merged = 0;
+		for (int i = 0; i < size; i++) {
+			int position = other.elements.indexOf(elements.get(i));
+			mergedElements[merged] = elements.get(i);
+			mergedCounts[merged++] = counts[i] + (position < 0 ? otherMinimum : other.counts[position]);
+		}
+		for (int i = 0; i < otherSize; i++) {
+			if (elements.indexOf(other.elements.get(i)) < 0) {
+				mergedElements[merged] = other.elements.get(i);
+				mergedCounts[merged++] = minimum + other.counts[i];
+			}
+		}
+		elements = new KeyIndex<>();
+		for (int i = 0; i < merged; i++) {
+			@SuppressWarnings("unchecked")
+			E element = (E) mergedElements[i];
+			offer(element, mergedCounts[i]);
+		}
+		total += other.total;
+		return this;
+	}
+
+	long total() {
+		return total;
+	}
+
+	/**
+	 * Passes the elements whose estimated count reaches {@code minimum} to the consumer, most frequent first.
+	 */
+	void forEach(long minimum, ObjIntConsumer<? super E> consumer) {
+		for (int position : descending()) {
+			if (counts[position] < minimum) {
+				return;
+			}
+			checkArgument(counts[position] <= Integer.MAX_VALUE, "too many occurrences: %s", counts[position]);
+			consumer.accept(elements.get(position), (int) counts[position]);
+		}
+	}
+
+	/**
+	 * Keeps an element known to be absent when there is a free counter or when it outnumbers the smallest one.
+	 */
+	private void offer(E element, long count) {
+		int size = elements.size();
+		if (size < capacity) {
+			elements.add(element);
+			insert(size, count);
+		} else if (count > counts[heap[0]]) {
+			int position = heap[0];
+			elements.replace(position, element);
+			counts[position] = count;
+			siftDown(0);
+		}
+	}
+
+	private void insert(int position, long count) {
+		if (position == counts.length) {
+			int grown = (int) Math.min(capacity, Math.max(INITIAL_CAPACITY, position * 2L));
+			counts = Arrays.copyOf(counts, grown);
+			heap = Arrays.copyOf(heap, grown);
+			heapIndex = Arrays.copyOf(heapIndex, grown);
+		}
+		counts[position] = count;
+		heap[position] = position;
+		siftUp(position);
+	}
+
+	private void siftUp(int index) {
+		int position = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (counts[heap[parent]] <= counts[position]) {
+				break;
+			}
+			move(parent, index);
+			index = parent;
+		}
+		heap[index] = position;
+		heapIndex[position] = index;
+	}
+
+	private void siftDown(int index) {
+		int size = elements.size();
+		int half = size >>> 1;
+		int position = heap[index];
+		while (index < half) {
+			int child = 2 * index + 1;
+			if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+				child++;
+			}
+			if (counts[position] <= counts[heap[child]]) {
+				break;
+			}
+			move(child, index);
+			index = child;
+		}
+		heap[index] = position;
+		heapIndex[position] = index;
+	}
+
+	private void move(int from, int to) {
+		heap[to] = heap[from];
+		heapIndex[heap[to]] = to;
+	}
+
+	/**
+	 * Returns the positions by decreasing count, heap-sorting a copy of the min-heap so that each removed minimum
+	 * lands right after the remaining ones.
+	 */
+	private int[] descending() {
+		int[] order = Arrays.copyOf(heap, elements.size());
+		for (int end = order.length - 1; end > 0; end--) {
+			int position = order[end];
+			order[end] = order[0];
+			int index = 0;
+			int half = end >>> 1;
+			while (index < half) {
+				int child = 2 * index + 1;
+				if (child + 1 < end && counts[order[child + 1]] < counts[order[child]]) {
+					child++;
+				}
+				if (counts[position] <= counts[order[child]]) {
+					break;
+				}
+				order[index] = order[child];
+				index = child;
+			}
+			order[index] = position;
+		}
+		return order;
+	}
+
+}
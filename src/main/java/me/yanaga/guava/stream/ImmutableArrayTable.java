@@ -0,0 +1,462 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable {@link Table} over fixed row and column key universes, backed by a single flat value array. Lookups are
+ * two index map probes plus an array access, and {@link #at(int, int)} skips the probes entirely. Like Guava's
+ * {@code ArrayTable}, every key of the universes is part of {@link #rowKeySet()} and {@link #columnKeySet()}, even
+ * if its row or column holds no value.
+ */
+public final class ImmutableArrayTable<R, C, V> implements Table<R, C, V> {
+
+	static final int MIN_SPARSE_AREA = 1 << 16;
+
+	static final int MAX_SPARSITY = 64;
+
+	private final ImmutableMap<R, Integer> rowIndex;
+
+	private final ImmutableMap<C, Integer> columnIndex;
+
+	private final ImmutableList<R> rowKeys;
+
+	private final ImmutableList<C> columnKeys;
+
+	private final Object[] values;
+
+	private final int size;
+
+	ImmutableArrayTable(ImmutableMap<R, Integer> rowIndex, ImmutableMap<C, Integer> columnIndex, Object[] values) {
+		this.rowIndex = rowIndex;
+		this.columnIndex = columnIndex;
+		this.rowKeys = rowIndex.keySet().asList();
+		this.columnKeys = columnIndex.keySet().asList();
+		this.values = values;
+		int count = 0;
+		for (Object value : values) {
+			if (value != null) {
+				count++;
+			}
+		}
+		this.size = count;
+	}
+
+	static <R, C, V> ImmutableArrayTable<R, C, V> copyOf(Collection<Cell<R, C, V>> cells) {
+		Map<R, Integer> rows = new LinkedHashMap<>();
+		Map<C, Integer> columns = new LinkedHashMap<>();
+		for (Cell<R, C, V> cell : cells) {
+			rows.putIfAbsent(cell.getRowKey(), rows.size());
+			columns.putIfAbsent(cell.getColumnKey(), columns.size());
+		}
+		int area = checkedArea(rows.size(), columns.size());
+		checkArgument(area <= MIN_SPARSE_AREA || (long) cells.size() * MAX_SPARSITY >= area,
+				"too sparse for an array table: %s cells over %s rows x %s columns", cells.size(), rows.size(), columns.size());
+		Object[] values = new Object[area];
+		for (Cell<R, C, V> cell : cells) {
+			int position = rows.get(cell.getRowKey()) * columns.size() + columns.get(cell.getColumnKey());
+			if (values[position] != null) {
+				throw new IllegalArgumentException(String.format("Duplicate key: (row=%s, column=%s), values: [%s, %s].",
+						cell.getRowKey(), cell.getColumnKey(), values[position], cell.getValue()));
+			}
+			values[position] = checkNotNull(cell.getValue());
+		}
+		return new ImmutableArrayTable<>(ImmutableMap.copyOf(rows), ImmutableMap.copyOf(columns), values);
+	}
+
+	static <E> ImmutableMap<E, Integer> index(Iterable<? extends E> keys) {
+		ImmutableList<E> distinct = ImmutableSet.<E>copyOf(keys).asList();
+		ImmutableMap.Builder<E, Integer> builder = ImmutableMap.builder();
+		for (int i = 0; i < distinct.size(); i++) {
+			builder.put(distinct.get(i), i);
+		}
+		return builder.build();
+	}
+
+	static int checkedArea(int rows, int columns) {
+		long area = (long) rows * columns;
+		checkArgument(area <= Integer.MAX_VALUE - 8, "too many cells for an array table: %s rows x %s columns", rows, columns);
+		return (int) area;
+	}
+
+	public ImmutableList<R> rowKeyList() {
+		return rowKeys;
+	}
+
+	public ImmutableList<C> columnKeyList() {
+		return columnKeys;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V at(int rowIndex, int columnIndex) {
+		checkElementIndex(rowIndex, rowKeys.size());
+		checkElementIndex(columnIndex, columnKeys.size());
+		return (V) values[rowIndex * columnKeys.size() + columnIndex];
+	}
+
+	@Override
+	public V get(Object rowKey, Object columnKey) {
+		Integer row = rowIndex.get(rowKey);
+		Integer column = columnIndex.get(columnKey);
+		return row == null || column == null ? null : at(row, column);
+	}
+
+	@Override
+	public boolean contains(Object rowKey, Object columnKey) {
+		return get(rowKey, columnKey) != null;
+	}
+
+	@Override
+	public boolean containsRow(Object rowKey) {
+		return rowIndex.containsKey(rowKey);
+	}
+
+	@Override
+	public boolean containsColumn(Object columnKey) {
+		return columnIndex.containsKey(columnKey);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		if (value != null) {
+			for (Object candidate : values) {
+				if (value.equals(candidate)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public ImmutableSet<R> rowKeySet() {
+		return rowIndex.keySet();
+	}
+
+	@Override
+	public ImmutableSet<C> columnKeySet() {
+		return columnIndex.keySet();
+	}
+
+	@Override
+	public Map<C, V> row(R rowKey) {
+		Integer row = rowIndex.get(rowKey);
+		return row == null ? ImmutableMap.<C, V>of() : new Slice<>(columnKeys, columnIndex, row * columnKeys.size(), 1);
+	}
+
+	@Override
+	public Map<R, V> column(C columnKey) {
+		Integer column = columnIndex.get(columnKey);
+		return column == null ? ImmutableMap.<R, V>of() : new Slice<>(rowKeys, rowIndex, column, columnKeys.size());
+	}
+
+	@Override
+	public Map<R, Map<C, V>> rowMap() {
+		return new KeyedViews<R, Map<C, V>>(rowKeys, rowIndex) {
+			@Override
+			Map<C, V> view(R key) {
+				return row(key);
+			}
+		};
+	}
+
+	@Override
+	public Map<C, Map<R, V>> columnMap() {
+		return new KeyedViews<C, Map<R, V>>(columnKeys, columnIndex) {
+			@Override
+			Map<R, V> view(C key) {
+				return column(key);
+			}
+		};
+	}
+
+	@Override
+	public Set<Cell<R, C, V>> cellSet() {
+		return new AbstractSet<Cell<R, C, V>>() {
+			@Override
+			public Iterator<Cell<R, C, V>> iterator() {
+				return new PresentIterator<Cell<R, C, V>>(0, 1, values.length) {
+					@SuppressWarnings("unchecked")
+					@Override
+					Cell<R, C, V> element(int index) {
+						int columns = columnKeys.size();
+						return Tables.immutableCell(rowKeys.get(index / columns), columnKeys.get(index % columns), (V) values[index]);
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object object) {
+				if (object instanceof Cell) {
+					Cell<?, ?, ?> cell = (Cell<?, ?, ?>) object;
+					V value = get(cell.getRowKey(), cell.getColumnKey());
+					return value != null && value.equals(cell.getValue());
+				}
+				return false;
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public Collection<V> values() {
+		return new AbstractCollection<V>() {
+			@Override
+			public Iterator<V> iterator() {
+				return new PresentIterator<V>(0, 1, values.length) {
+					@SuppressWarnings("unchecked")
+					@Override
+					V element(int index) {
+						return (V) values[index];
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public V put(R rowKey, C columnKey, V value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void putAll(Table<? extends R, ? extends C, ? extends V> table) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public V remove(Object rowKey, Object columnKey) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object == this || (object instanceof Table && cellSet().equals(((Table<?, ?, ?>) object).cellSet()));
+	}
+
+	@Override
+	public int hashCode() {
+		return cellSet().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return rowMap().toString();
+	}
+
+	/**
+	 * A row or a column: the values found at {@code offset + i * stride} for every key {@code i} of the other
+	 * dimension, skipping the empty slots.
+	 */
+	private final class Slice<K> extends AbstractMap<K, V> {
+
+		private final ImmutableList<K> keys;
+
+		private final ImmutableMap<K, Integer> index;
+
+		private final int offset;
+
+		private final int stride;
+
+		private Slice(ImmutableList<K> keys, ImmutableMap<K, Integer> index, int offset, int stride) {
+			this.keys = keys;
+			this.index = index;
+			this.offset = offset;
+			this.stride = stride;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V get(Object key) {
+			Integer position = index.get(key);
+			return position == null ? null : (V) values[offset + position * stride];
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return get(key) != null;
+		}
+
+		@Override
+		public Set<Entry<K, V>> entrySet() {
+			return new AbstractSet<Entry<K, V>>() {
+				@Override
+				public Iterator<Entry<K, V>> iterator() {
+					return new PresentIterator<Entry<K, V>>(offset, stride, offset + keys.size() * stride) {
+						@SuppressWarnings("unchecked")
+						@Override
+						Entry<K, V> element(int position) {
+							return new SimpleImmutableEntry<>(keys.get((position - offset) / stride), (V) values[position]);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					int count = 0;
+					for (int position = offset; position < offset + keys.size() * stride; position += stride) {
+						if (values[position] != null) {
+							count++;
+						}
+					}
+					return count;
+				}
+			};
+		}
+
+	}
+
+	private abstract static class KeyedViews<K, M> extends AbstractMap<K, M> {
+
+		private final ImmutableList<K> keys;
+
+		private final ImmutableMap<K, Integer> index;
+
+		private KeyedViews(ImmutableList<K> keys, ImmutableMap<K, Integer> index) {
+			this.keys = keys;
+			this.index = index;
+		}
+
+		abstract M view(K key);
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public M get(Object key) {
+			return index.containsKey(key) ? view((K) key) : null;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return index.containsKey(key);
+		}
+
+		@Override
+		public Set<Entry<K, M>> entrySet() {
+			return new AbstractSet<Entry<K, M>>() {
+				@Override
+				public Iterator<Entry<K, M>> iterator() {
+					Iterator<K> iterator = keys.iterator();
+					return new Iterator<Entry<K, M>>() {
+						@Override
+						public boolean hasNext() {
+							return iterator.hasNext();
+						}
+
+						@Override
+						public Entry<K, M> next() {
+							K key = iterator.next();
+							return new SimpleImmutableEntry<>(key, view(key));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return keys.size();
+				}
+			};
+		}
+
+	}
+
+	/**
+	 * Walks the slots {@code start, start + stride, ...} below {@code end} that hold a value.
+	 */
+	private abstract class PresentIterator<E> implements Iterator<E> {
+
+		private final int stride;
+
+		private final int end;
+
+		private int position;
+
+		private PresentIterator(int start, int stride, int end) {
+			this.stride = stride;
+			this.end = end;
+			this.position = start;
+		}
+
+		abstract E element(int position);
+
+		@Override
+		public boolean hasNext() {
+			while (position < end && values[position] == null) {
+				position += stride;
+			}
+			return position < end;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			E element = element(position);
+			position += stride;
+			return element;
+		}
+
+	}
+
+}
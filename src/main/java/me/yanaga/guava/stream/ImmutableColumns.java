@@ -0,0 +1,162 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Immutable struct-of-arrays view of a record stream, built by {@link MoreCollectors#toImmutableColumns}. Every
+ * numeric field of the {@link ColumnSchema} is a primitive array, so a scan over one column reads a single
+ * contiguous array; every other field is an {@code ImmutableList}. {@link #rows()} offers the records back as
+ * lightweight row views over the columns.
+ */
+public final class ImmutableColumns {
+
+	private final ImmutableMap<String, Integer> index;
+
+	private final Object[] columns;
+
+	private final int size;
+
+	ImmutableColumns(ImmutableMap<String, Integer> index, Object[] columns, int size) {
+		this.index = index;
+		this.columns = columns;
+		this.size = size;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public ImmutableList<String> columnNames() {
+		return index.keySet().asList();
+	}
+
+	public ImmutableIntArray intColumn(String name) {
+		return column(name, ImmutableIntArray.class);
+	}
+
+	public ImmutableLongArray longColumn(String name) {
+		return column(name, ImmutableLongArray.class);
+	}
+
+	public ImmutableDoubleArray doubleColumn(String name) {
+		return column(name, ImmutableDoubleArray.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <V> ImmutableList<V> column(String name) {
+		return column(name, ImmutableList.class);
+	}
+
+	public Row row(int index) {
+		checkElementIndex(index, size);
+		return new Row(index);
+	}
+
+	public List<Row> rows() {
+		return new Rows();
+	}
+
+	private <C> C column(String name, Class<C> type) {
+		Integer position = index.get(name);
+		checkArgument(position != null, "No such column: %s", name);
+		Object column = columns[position];
+		checkArgument(type.isInstance(column), "Column %s is not a %s column", name, type.getSimpleName());
+		return type.cast(column);
+	}
+
+	/**
+	 * One record, read through the columns on demand.
+	 */
+	public final class Row {
+
+		private final int index;
+
+		private Row(int index) {
+			this.index = index;
+		}
+
+		public int getInt(String name) {
+			return intColumn(name).get(index);
+		}
+
+		public long getLong(String name) {
+			return longColumn(name).get(index);
+		}
+
+		public double getDouble(String name) {
+			return doubleColumn(name).get(index);
+		}
+
+		@SuppressWarnings("unchecked")
+		public <V> V get(String name) {
+			Integer position = ImmutableColumns.this.index.get(name);
+			checkArgument(position != null, "No such column: %s", name);
+			Object column = columns[position];
+			if (column instanceof ImmutableIntArray) {
+				return (V) Integer.valueOf(((ImmutableIntArray) column).get(index));
+			} else if (column instanceof ImmutableLongArray) {
+				return (V) Long.valueOf(((ImmutableLongArray) column).get(index));
+			} else if (column instanceof ImmutableDoubleArray) {
+				return (V) Double.valueOf(((ImmutableDoubleArray) column).get(index));
+			}
+			return ((ImmutableList<V>) column).get(index);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder("{");
+			for (String name : columnNames()) {
+				if (builder.length() > 1) {
+					builder.append(", ");
+				}
+				Object value = get(name);
+				builder.append(name).append('=').append(value);
+			}
+			return builder.append('}').toString();
+		}
+
+	}
+
+	private final class Rows extends AbstractList<Row> implements RandomAccess {
+
+		@Override
+		public Row get(int index) {
+			return row(index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+}
@@ -0,0 +1,274 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Immutable {@link ListMultimap} in compressed sparse row layout: a {@link KeyIndex} of the distinct keys, an
+ * {@code int} array of offsets and one flat array holding the values of every key contiguously. There is no
+ * collection object per key; {@link #get(Object)} and the other views are computed from the three arrays. Keys
+ * iterate in first-occurrence order and the values of a key in encounter order, as in {@code ImmutableListMultimap}.
+ */
+public final class ImmutableCompactListMultimap<K, V> implements ListMultimap<K, V> {
+
+	private final KeyIndex<K> keys;
+
+	private final int[] offsets;
+
+	private final Object[] values;
+
+	ImmutableCompactListMultimap(KeyIndex<K> keys, int[] offsets, Object[] values) {
+		this.keys = keys;
+		this.offsets = offsets;
+		this.values = values;
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return values.length == 0;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return keys.indexOf(key) >= 0;
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return value != null && Arrays.asList(values).contains(value);
+	}
+
+	@Override
+	public boolean containsEntry(Object key, Object value) {
+		return get(key).contains(value);
+	}
+
+	@Override
+	public List<V> get(Object key) {
+		int index = keys.indexOf(key);
+		return index < 0 ? Collections.<V>emptyList() : new Slice(index);
+	}
+
+	@Override
+	public Set<K> keySet() {
+		return new AbstractSet<K>() {
+			@Override
+			public Iterator<K> iterator() {
+				return new KeyIterator();
+			}
+
+			@Override
+			public boolean contains(Object key) {
+				return containsKey(key);
+			}
+
+			@Override
+			public int size() {
+				return keys.size();
+			}
+		};
+	}
+
+	@Override
+	public Multiset<K> keys() {
+		ImmutableMultiset.Builder<K> builder = ImmutableMultiset.builder();
+		for (int i = 0; i < keys.size(); i++) {
+			builder.addCopies(keys.get(i), offsets[i + 1] - offsets[i]);
+		}
+		return builder.build();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Collection<V> values() {
+		return Collections.unmodifiableList((List<V>) Arrays.asList(values));
+	}
+
+	@Override
+	public Collection<Map.Entry<K, V>> entries() {
+		return new AbstractCollection<Map.Entry<K, V>>() {
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public boolean contains(Object object) {
+				return object instanceof Map.Entry && containsEntry(((Map.Entry<?, ?>) object).getKey(), ((Map.Entry<?, ?>) object).getValue());
+			}
+
+			@Override
+			public int size() {
+				return values.length;
+			}
+		};
+	}
+
+	@Override
+	public Map<K, Collection<V>> asMap() {
+		return Maps.asMap(keySet(), key -> get(key));
+	}
+
+	@Override
+	public boolean put(K key, V value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean remove(Object key, Object value) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean putAll(K key, Iterable<? extends V> values) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean putAll(Multimap<? extends K, ? extends V> multimap) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public List<V> replaceValues(K key, Iterable<? extends V> values) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public List<V> removeAll(Object key) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object == this || object instanceof Multimap && asMap().equals(((Multimap<?, ?>) object).asMap());
+	}
+
+	@Override
+	public int hashCode() {
+		return asMap().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return asMap().toString();
+	}
+
+	private final class Slice extends AbstractList<V> implements RandomAccess {
+
+		private final int from;
+
+		private final int size;
+
+		Slice(int index) {
+			this.from = offsets[index];
+			this.size = offsets[index + 1] - from;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V get(int index) {
+			checkElementIndex(index, size);
+			return (V) values[from + index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+	private final class KeyIterator implements Iterator<K> {
+
+		private int index;
+
+		@Override
+		public boolean hasNext() {
+			return index < keys.size();
+		}
+
+		@Override
+		public K next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return keys.get(index++);
+		}
+
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+		private int key;
+
+		private int index;
+
+		@Override
+		public boolean hasNext() {
+			return index < values.length;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Map.Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			while (offsets[key + 1] <= index) {
+				key++;
+			}
+			return Maps.immutableEntry(keys.get(key), (V) values[index++]);
+		}
+
+	}
+
+}
@@ -0,0 +1,185 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.DoubleStream;
+
+/**
+ * Immutable array of unboxed {@code double} values. Instances are collected from an {@link DoubleStream} with
+ * {@code stream.collect(ImmutableDoubleArray::builder, ImmutableDoubleArray.Builder::add, ImmutableDoubleArray.Builder::addAll)}
+ * followed by {@link Builder#build()} or {@link Builder#buildSorted()}, or simply with {@link #copyOf(DoubleStream)}.
+ */
+public final class ImmutableDoubleArray extends PrimitiveArray<double[]> {
+
+	private static final ImmutableDoubleArray EMPTY = new ImmutableDoubleArray(new double[0]);
+
+	private ImmutableDoubleArray(double[] array) {
+		super(array);
+	}
+
+	public static ImmutableDoubleArray of() {
+		return EMPTY;
+	}
+
+	public static ImmutableDoubleArray of(double... values) {
+		return copyOf(values);
+	}
+
+	public static ImmutableDoubleArray copyOf(double[] values) {
+		return values.length == 0 ? EMPTY : new ImmutableDoubleArray(values.clone());
+	}
+
+	public static ImmutableDoubleArray copyOf(DoubleStream stream) {
+		return stream.collect(ImmutableDoubleArray::builder, Builder::add, Builder::addAll).build();
+	}
+
+	public static ImmutableDoubleArray sortedCopyOf(DoubleStream stream) {
+		return stream.collect(ImmutableDoubleArray::builder, Builder::add, Builder::addAll).buildSorted();
+	}
+
+	public static Builder builder() {
+		return new Builder(Builder.DEFAULT_CAPACITY);
+	}
+
+	public static Builder builder(int expectedSize) {
+		return new Builder(expectedSize);
+	}
+
+	public double get(int index) {
+		return array[checkIndex(index)];
+	}
+
+	public int indexOf(double target) {
+		for (int i = 0; i < array.length; i++) {
+			if (Double.doubleToLongBits(array[i]) == Double.doubleToLongBits(target)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean contains(double target) {
+		return indexOf(target) >= 0;
+	}
+
+	public boolean isSorted() {
+		for (int i = 1; i < array.length; i++) {
+			if (Double.compare(array[i - 1], array[i]) > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public ImmutableDoubleArray sorted() {
+		if (isSorted()) {
+			return this;
+		}
+		double[] sorted = array.clone();
+		Arrays.sort(sorted);
+		return new ImmutableDoubleArray(sorted);
+	}
+
+	public int binarySearch(double key) {
+		return Arrays.binarySearch(array, key);
+	}
+
+	public double[] toArray() {
+		return array.clone();
+	}
+
+	public DoubleStream stream() {
+		return Arrays.stream(array);
+	}
+
+	public List<Double> asList() {
+		return new AsList();
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(array);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(array);
+	}
+
+	private final class AsList extends ListView<Double> {
+
+		@Override
+		public Double get(int index) {
+			return ImmutableDoubleArray.this.get(index);
+		}
+
+		@Override
+		public int indexOf(Object target) {
+			return target instanceof Double ? ImmutableDoubleArray.this.indexOf((Double) target) : -1;
+		}
+
+	}
+
+	public static final class Builder extends AbstractBuilder<double[]> {
+
+		private Builder(int expectedSize) {
+			super(new double[Math.max(expectedSize, 0)]);
+		}
+
+		public Builder add(double value) {
+			ensureCapacity(1);
+			contents[count++] = value;
+			return this;
+		}
+
+		public Builder addAll(double[] values) {
+			append(values, values.length);
+			return this;
+		}
+
+		public Builder addAll(Builder other) {
+			append(other.contents, other.count);
+			return this;
+		}
+
+		public ImmutableDoubleArray build() {
+			return count == 0 ? EMPTY : new ImmutableDoubleArray(trimmed());
+		}
+
+		public ImmutableDoubleArray buildSorted() {
+			if (count == 0) {
+				return EMPTY;
+			}
+			double[] sorted = Arrays.copyOf(contents, count);
+			Arrays.parallelSort(sorted);
+			return new ImmutableDoubleArray(sorted);
+		}
+
+		@Override
+		double[] copyOf(double[] array, int length) {
+			return Arrays.copyOf(array, length);
+		}
+
+	}
+
+}
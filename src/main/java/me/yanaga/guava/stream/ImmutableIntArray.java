@@ -0,0 +1,185 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable array of unboxed {@code int} values. Instances are collected from an {@link IntStream} with
+ * {@code stream.collect(ImmutableIntArray::builder, ImmutableIntArray.Builder::add, ImmutableIntArray.Builder::addAll)}
+ * followed by {@link Builder#build()} or {@link Builder#buildSorted()}, or simply with {@link #copyOf(IntStream)}.
+ */
+public final class ImmutableIntArray extends PrimitiveArray<int[]> {
+
+	private static final ImmutableIntArray EMPTY = new ImmutableIntArray(new int[0]);
+
+	private ImmutableIntArray(int[] array) {
+		super(array);
+	}
+
+	public static ImmutableIntArray of() {
+		return EMPTY;
+	}
+
+	public static ImmutableIntArray of(int... values) {
+		return copyOf(values);
+	}
+
+	public static ImmutableIntArray copyOf(int[] values) {
+		return values.length == 0 ? EMPTY : new ImmutableIntArray(values.clone());
+	}
+
+	public static ImmutableIntArray copyOf(IntStream stream) {
+		return stream.collect(ImmutableIntArray::builder, Builder::add, Builder::addAll).build();
+	}
+
+	public static ImmutableIntArray sortedCopyOf(IntStream stream) {
+		return stream.collect(ImmutableIntArray::builder, Builder::add, Builder::addAll).buildSorted();
+	}
+
+	public static Builder builder() {
+		return new Builder(Builder.DEFAULT_CAPACITY);
+	}
+
+	public static Builder builder(int expectedSize) {
+		return new Builder(expectedSize);
+	}
+
+	public int get(int index) {
+		return array[checkIndex(index)];
+	}
+
+	public int indexOf(int target) {
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == target) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean contains(int target) {
+		return indexOf(target) >= 0;
+	}
+
+	public boolean isSorted() {
+		for (int i = 1; i < array.length; i++) {
+			if (array[i - 1] > array[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public ImmutableIntArray sorted() {
+		if (isSorted()) {
+			return this;
+		}
+		int[] sorted = array.clone();
+		Arrays.sort(sorted);
+		return new ImmutableIntArray(sorted);
+	}
+
+	public int binarySearch(int key) {
+		return Arrays.binarySearch(array, key);
+	}
+
+	public int[] toArray() {
+		return array.clone();
+	}
+
+	public IntStream stream() {
+		return Arrays.stream(array);
+	}
+
+	public List<Integer> asList() {
+		return new AsList();
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(array);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(array);
+	}
+
+	private final class AsList extends ListView<Integer> {
+
+		@Override
+		public Integer get(int index) {
+			return ImmutableIntArray.this.get(index);
+		}
+
+		@Override
+		public int indexOf(Object target) {
+			return target instanceof Integer ? ImmutableIntArray.this.indexOf((Integer) target) : -1;
+		}
+
+	}
+
+	public static final class Builder extends AbstractBuilder<int[]> {
+
+		private Builder(int expectedSize) {
+			super(new int[Math.max(expectedSize, 0)]);
+		}
+
+		public Builder add(int value) {
+			ensureCapacity(1);
+			contents[count++] = value;
+			return this;
+		}
+
+		public Builder addAll(int[] values) {
+			append(values, values.length);
+			return this;
+		}
+
+		public Builder addAll(Builder other) {
+			append(other.contents, other.count);
+			return this;
+		}
+
+		public ImmutableIntArray build() {
+			return count == 0 ? EMPTY : new ImmutableIntArray(trimmed());
+		}
+
+		public ImmutableIntArray buildSorted() {
+			if (count == 0) {
+				return EMPTY;
+			}
+			int[] sorted = Arrays.copyOf(contents, count);
+			Arrays.parallelSort(sorted);
+			return new ImmutableIntArray(sorted);
+		}
+
+		@Override
+		int[] copyOf(int[] array, int length) {
+			return Arrays.copyOf(array, length);
+		}
+
+	}
+
+}
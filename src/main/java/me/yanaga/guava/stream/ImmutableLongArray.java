@@ -0,0 +1,185 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+/**
+ * Immutable array of unboxed {@code long} values. Instances are collected from an {@link LongStream} with
+ * {@code stream.collect(ImmutableLongArray::builder, ImmutableLongArray.Builder::add, ImmutableLongArray.Builder::addAll)}
+ * followed by {@link Builder#build()} or {@link Builder#buildSorted()}, or simply with {@link #copyOf(LongStream)}.
+ */
+public final class ImmutableLongArray extends PrimitiveArray<long[]> {
+
+	private static final ImmutableLongArray EMPTY = new ImmutableLongArray(new long[0]);
+
+	private ImmutableLongArray(long[] array) {
+		super(array);
+	}
+
+	public static ImmutableLongArray of() {
+		return EMPTY;
+	}
+
+	public static ImmutableLongArray of(long... values) {
+		return copyOf(values);
+	}
+
+	public static ImmutableLongArray copyOf(long[] values) {
+		return values.length == 0 ? EMPTY : new ImmutableLongArray(values.clone());
+	}
+
+	public static ImmutableLongArray copyOf(LongStream stream) {
+		return stream.collect(ImmutableLongArray::builder, Builder::add, Builder::addAll).build();
+	}
+
+	public static ImmutableLongArray sortedCopyOf(LongStream stream) {
+		return stream.collect(ImmutableLongArray::builder, Builder::add, Builder::addAll).buildSorted();
+	}
+
+	public static Builder builder() {
+		return new Builder(Builder.DEFAULT_CAPACITY);
+	}
+
+	public static Builder builder(int expectedSize) {
+		return new Builder(expectedSize);
+	}
+
+	public long get(int index) {
+		return array[checkIndex(index)];
+	}
+
+	public int indexOf(long target) {
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == target) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public boolean contains(long target) {
+		return indexOf(target) >= 0;
+	}
+
+	public boolean isSorted() {
+		for (int i = 1; i < array.length; i++) {
+			if (array[i - 1] > array[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public ImmutableLongArray sorted() {
+		if (isSorted()) {
+			return this;
+		}
+		long[] sorted = array.clone();
+		Arrays.sort(sorted);
+		return new ImmutableLongArray(sorted);
+	}
+
+	public int binarySearch(long key) {
+		return Arrays.binarySearch(array, key);
+	}
+
+	public long[] toArray() {
+		return array.clone();
+	}
+
+	public LongStream stream() {
+		return Arrays.stream(array);
+	}
+
+	public List<Long> asList() {
+		return new AsList();
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(array);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(array);
+	}
+
+	private final class AsList extends ListView<Long> {
+
+		@Override
+		public Long get(int index) {
+			return ImmutableLongArray.this.get(index);
+		}
+
+		@Override
+		public int indexOf(Object target) {
+			return target instanceof Long ? ImmutableLongArray.this.indexOf((Long) target) : -1;
+		}
+
+	}
+
+	public static final class Builder extends AbstractBuilder<long[]> {
+
+		private Builder(int expectedSize) {
+			super(new long[Math.max(expectedSize, 0)]);
+		}
+
+		public Builder add(long value) {
+			ensureCapacity(1);
+			contents[count++] = value;
+			return this;
+		}
+
+		public Builder addAll(long[] values) {
+			append(values, values.length);
+			return this;
+		}
+
+		public Builder addAll(Builder other) {
+			append(other.contents, other.count);
+			return this;
+		}
+
+		public ImmutableLongArray build() {
+			return count == 0 ? EMPTY : new ImmutableLongArray(trimmed());
+		}
+
+		public ImmutableLongArray buildSorted() {
+			if (count == 0) {
+				return EMPTY;
+			}
+			long[] sorted = Arrays.copyOf(contents, count);
+			Arrays.parallelSort(sorted);
+			return new ImmutableLongArray(sorted);
+		}
+
+		@Override
+		long[] copyOf(long[] array, int length) {
+			return Arrays.copyOf(array, length);
+		}
+
+	}
+
+}
@@ -0,0 +1,69 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Immutable, random-access {@link java.util.List} whose elements live off-heap in memory-mapped segments and are
+ * decoded by a {@link RecordCodec} on every read. Segments hold a variable number of records, so an element is found
+ * by a binary search over the segment start indexes followed by a single decode.
+ */
+public final class ImmutableMappedList<T> extends AbstractList<T> implements RandomAccess {
+
+	private final RecordCodec<T> codec;
+
+	private final ByteBuffer[] segments;
+
+	private final int[] offsets;
+
+	private final int size;
+
+	ImmutableMappedList(RecordCodec<T> codec, ByteBuffer[] segments, int[] offsets, int size) {
+		this.codec = codec;
+		this.segments = segments;
+		this.offsets = offsets;
+		this.size = size;
+	}
+
+	@Override
+	public T get(int index) {
+		checkElementIndex(index, size);
+		int segment = Arrays.binarySearch(offsets, index);
+		if (segment < 0) {
+			segment = -segment - 2;
+		}
+		ByteBuffer source = segments[segment].duplicate();
+		source.position((index - offsets[segment]) * codec.recordSize());
+		return codec.decode(source);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+}
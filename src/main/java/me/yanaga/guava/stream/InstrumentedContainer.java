@@ -0,0 +1,97 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulation container of an instrumented collector: the wrapped container plus the counters of its own split
+ * and of every split combined into it. The accumulation counters are adders so that the single shared container of
+ * a {@code CONCURRENT} collector can be measured as well.
+ */
+final class InstrumentedContainer<A> {
+
+	private A container;
+
+	private final LongAdder accumulations = new LongAdder();
+
+	private final LongAdder accumulatorNanos = new LongAdder();
+
+	private final ImmutableLongArray.Builder combinedSplitSizes = ImmutableLongArray.builder();
+
+	private long supplierCalls = 1;
+
+	private long supplierNanos;
+
+	private long combinedAccumulations;
+
+	private long combinedAccumulatorNanos;
+
+	private long combines;
+
+	private long elementsCopied;
+
+	private long combinerNanos;
+
+	InstrumentedContainer(A container, long supplierNanos) {
+		this.container = container;
+		this.supplierNanos = supplierNanos;
+	}
+
+	A container() {
+		return container;
+	}
+
+	void accumulated(long nanos) {
+		accumulations.increment();
+		accumulatorNanos.add(nanos);
+	}
+
+	InstrumentedContainer<A> combined(A merged, InstrumentedContainer<A> other, long nanos) {
+		long ownAccumulations = other.accumulations.sum();
+		long copied = ownAccumulations + other.combinedAccumulations;
+		container = merged;
+		supplierCalls += other.supplierCalls;
+		supplierNanos += other.supplierNanos;
+		combinedAccumulations += copied;
+		combinedAccumulatorNanos += other.accumulatorNanos.sum() + other.combinedAccumulatorNanos;
+		combines += other.combines + 1;
+		elementsCopied += other.elementsCopied + copied;
+		combinerNanos += other.combinerNanos + nanos;
+		combinedSplitSizes.add(ownAccumulations).addAll(other.combinedSplitSizes);
+		return this;
+	}
+
+	CollectorMetrics metrics(long finisherNanos) {
+		long ownAccumulations = accumulations.sum();
+		return new CollectorMetrics(
+				supplierCalls,
+				ownAccumulations + combinedAccumulations,
+				combines,
+				elementsCopied,
+				supplierNanos,
+				accumulatorNanos.sum() + combinedAccumulatorNanos,
+				combinerNanos,
+				finisherNanos,
+				ImmutableLongArray.builder().add(ownAccumulations).addAll(combinedSplitSizes).build());
+	}
+
+}
@@ -0,0 +1,136 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * Insertion-ordered set of keys, each identified by its dense position. Keys live in a flat array and are found
+ * through an open-addressing hash table of positions, so an index costs two arrays regardless of the number of keys.
+ * This is the one open-addressing table of the package: containers that keep per-key state, such as counts, hold it
+ * in arrays of their own indexed by these positions.
+ */
+final class KeyIndex<K> {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private Object[] keys = new Object[INITIAL_CAPACITY];
+
+	private int[] table = new int[INITIAL_CAPACITY * 2];
+
+	private int size;
+
+	/**
+	 * Returns the position of the key, adding it at the end when it is not present yet.
+	 */
+	int add(K key) {
+		int mask = table.length - 1;
+		for (int slot = smear(key.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+			int position = table[slot] - 1;
+			if (position < 0) {
+				if (size == keys.length) {
+					keys = Arrays.copyOf(keys, size * 2);
+				}
+				keys[size] = key;
+				table[slot] = ++size;
+				if (size * 2 > table.length) {
+					rehash(table.length * 2);
+				}
+				return size - 1;
+			}
+			if (key.equals(keys[position])) {
+				return position;
+			}
+		}
+	}
+
+	int indexOf(Object key) {
+		if (key == null) {
+			return -1;
+		}
+		int mask = table.length - 1;
+		for (int slot = smear(key.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+			int position = table[slot] - 1;
+			if (position < 0 || key.equals(keys[position])) {
+				return position;
+			}
+		}
+	}
+
+	/**
+	 * Puts the key, which must not be present yet, in place of the key at the given position. The old key is removed
+	 * from the hash table by shifting back the entries of its probe sequence, so no tombstone is ever left behind.
+	 */
+	void replace(int position, K key) {
+		int mask = table.length - 1;
+		int hole = smear(keys[position].hashCode()) & mask;
+		while (table[hole] != position + 1) {
+			hole = (hole + 1) & mask;
+		}
+		for (int slot = (hole + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			int ideal = smear(keys[table[slot] - 1].hashCode()) & mask;
+			if (((slot - ideal) & mask) >= ((slot - hole) & mask)) {
+				table[hole] = table[slot];
+				hole = slot;
+			}
+		}
+		table[hole] = 0;
+		keys[position] = key;
+		int slot = smear(key.hashCode()) & mask;
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = position + 1;
+	}
+
+	@SuppressWarnings("unchecked")
+	K get(int index) {
+		return (K) keys[index];
+	}
+
+	int size() {
+		return size;
+	}
+
+	void trimToSize() {
+		if (keys.length != size) {
+			keys = Arrays.copyOf(keys, size);
+		}
+	}
+
+	private void rehash(int capacity) {
+		int[] rehashed = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < size; i++) {
+			int slot = smear(keys[i].hashCode()) & mask;
+			while (rehashed[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			rehashed[slot] = i + 1;
+		}
+		table = rehashed;
+	}
+
+	static int smear(int hashCode) {
+		return 0x1b873593 * Integer.rotateLeft(hashCode * 0xcc9e2d51, 15);
+	}
+
+}
@@ -0,0 +1,260 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.base.FinalizablePhantomReference;
+import com.google.common.base.FinalizableReferenceQueue;
+import com.google.common.collect.Sets;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Accumulation container for the memory-mapped list collector. Each container spills into a file of its own,
+ * mapping it in segments that start small and double up to {@link #MAX_SEGMENT_BYTES}, so no single mapping has to
+ * exceed the 2 GB limit of a {@link ByteBuffer}. Combining two containers links their segments without copying a
+ * byte. Files are unlinked as soon as they are open where the platform allows it, since the channel and the mappings
+ * stay valid until the list is garbage collected; elsewhere they are deleted once the list is built, or on exit.
+ * <p>
+ * A codec or I/O failure closes the channel right away. A failure elsewhere in the pipeline never reaches the
+ * container, which is simply dropped: a phantom reference then closes its channel and deletes its remaining files
+ * once it is garbage collected. The mappings themselves are only ever released by the garbage collector.
+ */
+final class MappedBuffer<T> {
+
+	private static final int FIRST_SEGMENT_BYTES = 1 << 16;
+
+	private static final int MAX_SEGMENT_BYTES = 1 << 26;
+
+	private static final FinalizableReferenceQueue RELEASES = new FinalizableReferenceQueue();
+
+	/**
+	 * Keeps the phantom references of the live containers reachable until they are either enqueued or cleared.
+	 */
+	private static final Set<Reference<?>> TRACKED = Sets.newConcurrentHashSet();
+
+	private final RecordCodec<T> codec;
+
+	private final int recordSize;
+
+	private final Path directory;
+
+	private final List<ByteBuffer> segments = new ArrayList<>();
+
+	private final Spill spill = new Spill();
+
+	private Reference<?> tracker;
+
+	private long position;
+
+	private MappedByteBuffer current;
+
+	private long size;
+
+	MappedBuffer(RecordCodec<T> codec, Path directory) {
+		this.codec = codec;
+		this.recordSize = codec.recordSize();
+		this.directory = directory;
+	}
+
+	void add(T t) {
+		if (current == null || !current.hasRemaining()) {
+			nextSegment();
+		}
+		int start = current.position();
+		try {
+			codec.encode(t, current);
+			checkState(current.position() - start == recordSize,
+					"codec wrote %s bytes but declared a record size of %s", current.position() - start, recordSize);
+		} catch (RuntimeException | Error e) {
+			abandon();
+			throw e;
+		}
+		size++;
+	}
+
+	MappedBuffer<T> combine(MappedBuffer<T> other) {
+		seal();
+		other.seal();
+		segments.addAll(other.segments);
+		synchronized (other.spill) {
+			synchronized (spill) {
+				spill.files.addAll(other.spill.files);
+				other.spill.files.clear();
+			}
+		}
+		if (tracker == null && !spill.files.isEmpty()) {
+			tracker = track(this, spill);
+		}
+		size += other.size;
+		return this;
+	}
+
+	ImmutableMappedList<T> finish() {
+		seal();
+		checkState(size <= Integer.MAX_VALUE, "too many records for a List: %s", size);
+		ByteBuffer[] buffers = new ByteBuffer[segments.size()];
+		int[] offsets = new int[segments.size()];
+		int offset = 0;
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = segments.get(i).asReadOnlyBuffer();
+			offsets[i] = offset;
+			offset += buffers[i].limit() / recordSize;
+		}
+		release();
+		return new ImmutableMappedList<>(codec, buffers, offsets, (int) size);
+	}
+
+	private void nextSegment() {
+		long bytes = current == null ? FIRST_SEGMENT_BYTES : Math.min(2L * current.capacity(), MAX_SEGMENT_BYTES);
+		retire();
+		try {
+			if (spill.channel == null) {
+				open();
+			}
+			long records = Math.max(1, bytes / recordSize);
+			current = spill.channel.map(FileChannel.MapMode.READ_WRITE, position, records * recordSize);
+			position += records * recordSize;
+		} catch (IOException e) {
+			abandon();
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void open() throws IOException {
+		if (tracker == null) {
+			tracker = track(this, spill);
+		}
+		Path file = Files.createTempFile(directory, "guava-stream-", ".records");
+		try {
+			spill.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		} catch (IOException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+		try {
+			Files.delete(file);
+		} catch (IOException e) {
+			// Open files cannot be deleted on some platforms; try again once the list is built.
+			file.toFile().deleteOnExit();
+			synchronized (spill) {
+				spill.files.add(file);
+			}
+		}
+	}
+
+	private void abandon() {
+		current = null;
+		release();
+	}
+
+	/**
+	 * Closes the channel and deletes the remaining files now rather than when the container is collected.
+	 */
+	private void release() {
+		if (tracker != null) {
+			TRACKED.remove(tracker);
+			tracker.clear();
+			tracker = null;
+		}
+		spill.release();
+	}
+
+	private void retire() {
+		if (current != null && current.position() > 0) {
+			current.flip();
+			segments.add(current);
+		}
+		current = null;
+	}
+
+	private void seal() {
+		retire();
+		if (spill.channel != null) {
+			try {
+				spill.channel.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			spill.channel = null;
+		}
+	}
+
+	/**
+	 * Registers the release of the spill once the container is phantom reachable. Static, so that the reference does
+	 * not capture the container itself.
+	 */
+	private static Reference<?> track(MappedBuffer<?> buffer, Spill spill) {
+		Reference<?> reference = new FinalizablePhantomReference<MappedBuffer<?>>(buffer, RELEASES) {
+			@Override
+			public void finalizeReferent() {
+				TRACKED.remove(this);
+				spill.release();
+			}
+		};
+		TRACKED.add(reference);
+		return reference;
+	}
+
+	/**
+	 * Operating system resources of a container, released either by the container or by its phantom reference.
+	 */
+	private static final class Spill {
+
+		private volatile FileChannel channel;
+
+		private final List<Path> files = new ArrayList<>();
+
+		private synchronized void release() {
+			FileChannel open = channel;
+			if (open != null) {
+				try {
+					open.close();
+				} catch (IOException e) {
+					// Nothing more to release.
+				}
+				channel = null;
+			}
+			for (Path file : files) {
+				try {
+					Files.deleteIfExists(file);
+				} catch (IOException e) {
+					// Already registered for deletion on exit.
+				}
+			}
+			files.clear();
+		}
+
+	}
+
+}
@@ -0,0 +1,327 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableBiMap;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+
+/**
+ * Accumulation container for the map collectors. Entries go into a hash table as soon as they arrive, so a duplicate
+ * key is either merged right away or, without a merge function, rejected on the spot instead of when the Guava
+ * builder is finally built. The tables are striped by thread like {@link StripedBuffer}; duplicates spread over two
+ * stripes are caught when the stripes are folded together at finish time.
+ *
+ * <p>A stripe keeps its first few entries in a flat array and only switches to a hash table when it outgrows it.
+ * Small results are then built with the {@code of} factories of Guava, skipping the builder and its array.
+ */
+final class MergingBuffer<K, V> {
+
+	private static final int SMALL_CAPACITY = 4;
+
+	private static final int HOME = -1;
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<MergingBuffer, Thread> OWNER =
+			AtomicReferenceFieldUpdater.newUpdater(MergingBuffer.class, Thread.class, "owner");
+
+	private final BinaryOperator<V> mergeFunction;
+
+	private final boolean uniqueValues;
+
+	private final int expectedSize;
+
+	private volatile Thread owner;
+
+	private volatile Stripe<K, V> home;
+
+	private volatile AtomicReferenceArray<Stripe<K, V>> stripes;
+
+	/**
+	 * @param mergeFunction combines the values of equal keys, or {@code null} to reject equal keys
+	 * @param uniqueValues whether equal values under different keys are rejected as well, as a bimap requires
+	 */
+	MergingBuffer(BinaryOperator<V> mergeFunction, boolean uniqueValues, int expectedSize) {
+		this.mergeFunction = mergeFunction;
+		this.uniqueValues = uniqueValues;
+		this.expectedSize = expectedSize;
+	}
+
+	void put(K key, V value) {
+		if (key == null) {
+			throw new NullPointerException("null key");
+		}
+		if (value == null) {
+			throw new NullPointerException(String.format("null value for key: %s", key));
+		}
+		Stripe<K, V> stripe = stripe();
+		synchronized (stripe) {
+			stripe.put(key, value);
+		}
+	}
+
+	MergingBuffer<K, V> combine(MergingBuffer<K, V> other) {
+		Stripe<K, V> target = stripe();
+		synchronized (target) {
+			for (int i = HOME; i < StripedBuffer.STRIPES; i++) {
+				Stripe<K, V> stripe = other.stripeAt(i);
+				if (stripe != null) {
+					synchronized (stripe) {
+						target.putAll(stripe);
+					}
+				}
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Folds the stripes together and builds the result, a bimap when values are unique.
+	 */
+	ImmutableMap<K, V> build(Supplier<? extends ImmutableMap.Builder<K, V>> supplier) {
+		Stripe<K, V> target = null;
+		for (int i = HOME; i < StripedBuffer.STRIPES; i++) {
+			Stripe<K, V> stripe = stripeAt(i);
+			if (stripe != null) {
+				synchronized (stripe) {
+					if (target == null) {
+						target = stripe;
+					} else {
+						target.putAll(stripe);
+					}
+				}
+			}
+		}
+		if (target == null) {
+			return uniqueValues ? ImmutableBiMap.<K, V>of() : ImmutableMap.<K, V>of();
+		}
+		if (target.map == null) {
+			return target.toSmallMap();
+		}
+		return supplier.get().putAll(target.map).build();
+	}
+
+	private Stripe<K, V> stripe() {
+		Thread current = Thread.currentThread();
+		if (owner == current) {
+			return home;
+		}
+		if (owner == null && OWNER.compareAndSet(this, null, current)) {
+			home = new Stripe<>(this, expectedSize);
+			return home;
+		}
+		AtomicReferenceArray<Stripe<K, V>> stripes = this.stripes;
+		if (stripes == null) {
+			synchronized (this) {
+				if (this.stripes == null) {
+					this.stripes = new AtomicReferenceArray<>(StripedBuffer.STRIPES);
+				}
+				stripes = this.stripes;
+			}
+		}
+		int index = StripedBuffer.stripeIndex();
+		Stripe<K, V> stripe = stripes.get(index);
+		if (stripe == null) {
+			stripes.compareAndSet(index, null, new Stripe<>(this, 0));
+			stripe = stripes.get(index);
+		}
+		return stripe;
+	}
+
+	private Stripe<K, V> stripeAt(int index) {
+		if (index == HOME) {
+			return home;
+		}
+		AtomicReferenceArray<Stripe<K, V>> stripes = this.stripes;
+		return stripes == null ? null : stripes.get(index);
+	}
+
+	private static final class Stripe<K, V> {
+
+		private final MergingBuffer<K, V> buffer;
+
+		private final int expectedSize;
+
+		private Object[] small;
+
+		private int smallSize;
+
+		private Map<K, V> map;
+
+		private Map<V, K> inverse;
+
+		private Stripe(MergingBuffer<K, V> buffer, int expectedSize) {
+			this.buffer = buffer;
+			this.expectedSize = expectedSize;
+			if (expectedSize > SMALL_CAPACITY) {
+				inflate();
+			}
+		}
+
+		private void put(K key, V value) {
+			if (map != null) {
+				putLarge(key, value);
+				return;
+			}
+			int index = indexOf(key);
+			if (index < 0 && smallSize == SMALL_CAPACITY) {
+				inflate();
+				putLarge(key, value);
+				return;
+			}
+			V previous = index < 0 ? null : value(index);
+			V merged = merge(key, previous, value);
+			if (buffer.uniqueValues) {
+				for (int i = 0; i < smallSize; i++) {
+					if (i != index && merged.equals(value(i))) {
+						throw conflict("value", key(i), merged, key, merged);
+					}
+				}
+			}
+			if (index < 0) {
+				if (small == null) {
+					small = new Object[SMALL_CAPACITY * 2];
+				}
+				index = smallSize++;
+				small[index * 2] = key;
+			}
+			small[index * 2 + 1] = merged;
+		}
+
+		private void putLarge(K key, V value) {
+			V previous = map.get(key);
+			V merged = merge(key, previous, value);
+			if (inverse != null) {
+				K existing = inverse.get(merged);
+				if (existing != null && !existing.equals(key)) {
+					throw conflict("value", existing, merged, key, merged);
+				}
+				if (previous != null) {
+					inverse.remove(previous);
+				}
+				inverse.put(merged, key);
+			}
+			map.put(key, merged);
+		}
+
+		private V merge(K key, V previous, V value) {
+			if (previous == null) {
+				return value;
+			}
+			if (buffer.mergeFunction == null) {
+				throw conflict("key", key, previous, key, value);
+			}
+			V merged = buffer.mergeFunction.apply(previous, value);
+			if (merged == null) {
+				throw new NullPointerException(String.format("null merged value for key: %s", key));
+			}
+			return merged;
+		}
+
+		private void putAll(Stripe<K, V> other) {
+			if (other.map == null) {
+				for (int i = 0; i < other.smallSize; i++) {
+					put(other.key(i), other.value(i));
+				}
+			} else {
+				for (Map.Entry<K, V> entry : other.map.entrySet()) {
+					put(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+
+		private void inflate() {
+			int capacity = (int) Math.min(Math.max(expectedSize, SMALL_CAPACITY * 2) / 0.75 + 1, Integer.MAX_VALUE);
+			map = new LinkedHashMap<>(capacity);
+			inverse = buffer.uniqueValues ? new HashMap<>(capacity) : null;
+			for (int i = 0; i < smallSize; i++) {
+				map.put(key(i), value(i));
+				if (inverse != null) {
+					inverse.put(value(i), key(i));
+				}
+			}
+			small = null;
+			smallSize = 0;
+		}
+
+		private int indexOf(K key) {
+			for (int i = 0; i < smallSize; i++) {
+				if (key.equals(small[i * 2])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		@SuppressWarnings("unchecked")
+		private K key(int index) {
+			return (K) small[index * 2];
+		}
+
+		@SuppressWarnings("unchecked")
+		private V value(int index) {
+			return (V) small[index * 2 + 1];
+		}
+
+		private ImmutableMap<K, V> toSmallMap() {
+			if (buffer.uniqueValues) {
+				switch (smallSize) {
+					case 0:
+						return ImmutableBiMap.of();
+					case 1:
+						return ImmutableBiMap.of(key(0), value(0));
+					case 2:
+						return ImmutableBiMap.of(key(0), value(0), key(1), value(1));
+					case 3:
+						return ImmutableBiMap.of(key(0), value(0), key(1), value(1), key(2), value(2));
+					default:
+						return ImmutableBiMap.of(key(0), value(0), key(1), value(1), key(2), value(2), key(3), value(3));
+				}
+			}
+			switch (smallSize) {
+				case 0:
+					return ImmutableMap.of();
+				case 1:
+					return ImmutableMap.of(key(0), value(0));
+				case 2:
+					return ImmutableMap.of(key(0), value(0), key(1), value(1));
+				case 3:
+					return ImmutableMap.of(key(0), value(0), key(1), value(1), key(2), value(2));
+				default:
+					return ImmutableMap.of(key(0), value(0), key(1), value(1), key(2), value(2), key(3), value(3));
+			}
+		}
+
+		private static IllegalArgumentException conflict(String kind, Object key, Object value, Object key2, Object value2) {
+			return new IllegalArgumentException(String.format(
+					"Multiple entries with same %s: %s=%s and %s=%s", kind, key, value, key2, value2));
+		}
+
+	}
+
+}
@@ -32,26 +32,209 @@ import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedMultiset;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.stream.Collector.Characteristics.CONCURRENT;
 import static java.util.stream.Collector.Characteristics.UNORDERED;
 
 public class MoreCollectors {
 
+	// The collectors of the no-argument factories hold no state, so one instance of each is shared by every caller.
+
+	private static final Collector<Object, ?, ImmutableList<Object>> TO_IMMUTABLE_LIST =
+			toImmutableList(SegmentedBuffer::new, ImmutableList::copyOf);
+
+	private static final Collector<Object, ?, ImmutableSet<Object>> TO_IMMUTABLE_SET = toImmutableSet(0);
+
+	private static final Collector<Comparable<Object>, ?, ImmutableSortedSet<Comparable<Object>>> TO_IMMUTABLE_SORTED_SET =
+			toImmutableSortedSet(Comparator.<Comparable<Object>>naturalOrder());
+
+	private static final Collector<Object, ?, ImmutableMultiset<Object>> TO_IMMUTABLE_MULTISET =
+			toImmutableMultiset(Function.identity(), t -> 1);
+
+	private static final Collector<Comparable<Object>, ?, ImmutableSortedMultiset<Comparable<Object>>> TO_IMMUTABLE_SORTED_MULTISET =
+			toImmutableSortedMultiset(Comparator.<Comparable<Object>>naturalOrder());
+
+	private static final Collector<String, ?, CompactStringSet> TO_COMPACT_STRING_SET = Collector.of(
+			() -> new PackingBuffer<Void>(false),
+			new BiConsumer<PackingBuffer<Void>, String>() {
+				@Override
+				public void accept(PackingBuffer<Void> buffer, String string) {
+					buffer.add(string);
+				}
+			},
+			new BinaryOperator<PackingBuffer<Void>>() {
+				@Override
+				public PackingBuffer<Void> apply(PackingBuffer<Void> buffer, PackingBuffer<Void> buffer2) {
+					return buffer.combine(buffer2);
+				}
+			},
+			new Function<PackingBuffer<Void>, CompactStringSet>() {
+				@Override
+				public CompactStringSet apply(PackingBuffer<Void> buffer) {
+					return buffer.toSet();
+				}
+			});
+
+	private static final Collector<CompletableFuture<Object>, ?, CompletableFuture<ImmutableList<Object>>> TO_IMMUTABLE_LIST_ASYNC =
+			toAsync(Function.identity(), Integer.MAX_VALUE, ImmutableList::copyOf);
+
 	private MoreCollectors() {
 	}
 
+	/**
+	 * Collects a sequential stream with a collector presized from the exact size of the stream, when it is known.
+	 * Parallel streams get an expected size of zero, since their splits each hold only part of the elements.
+	 */
+	public static <T, R> R collectPresized(
+			Stream<T> stream,
+			IntFunction<? extends Collector<? super T, ?, R>> collectorFactory) {
+		boolean parallel = stream.isParallel();
+		Spliterator<T> spliterator = stream.spliterator();
+		long estimate = !parallel && spliterator.hasCharacteristics(Spliterator.SIZED) ? spliterator.estimateSize() : 0;
+		return StreamSupport.stream(spliterator, parallel)
+				.onClose(stream::close)
+				.collect(collectorFactory.apply((int) Math.min(estimate, Integer.MAX_VALUE - 8)));
+	}
+
+	public static <T, A, R> Collector<T, ?, R> instrument(Collector<T, A, R> collector, CollectorListener listener) {
+		checkNotNull(collector);
+		checkNotNull(listener);
+		Supplier<A> supplier = collector.supplier();
+		BiConsumer<A, ? super T> accumulator = collector.accumulator();
+		BinaryOperator<A> combiner = collector.combiner();
+		Function<A, R> finisher = collector.finisher();
+		Set<Collector.Characteristics> characteristics = EnumSet.noneOf(Collector.Characteristics.class);
+		characteristics.addAll(collector.characteristics());
+		characteristics.remove(Collector.Characteristics.IDENTITY_FINISH);
+		return Collector.of(
+				() -> {
+					long start = System.nanoTime();
+					A container = supplier.get();
+					return new InstrumentedContainer<>(container, System.nanoTime() - start);
+				},
+				new BiConsumer<InstrumentedContainer<A>, T>() {
+					@Override
+					public void accept(InstrumentedContainer<A> container, T t) {
+						long start = System.nanoTime();
+						accumulator.accept(container.container(), t);
+						container.accumulated(System.nanoTime() - start);
+					}
+				},
+				new BinaryOperator<InstrumentedContainer<A>>() {
+					@Override
+					public InstrumentedContainer<A> apply(InstrumentedContainer<A> container, InstrumentedContainer<A> container2) {
+						long start = System.nanoTime();
+						A merged = combiner.apply(container.container(), container2.container());
+						return container.combined(merged, container2, System.nanoTime() - start);
+					}
+				},
+				new Function<InstrumentedContainer<A>, R>() {
+					@Override
+					public R apply(InstrumentedContainer<A> container) {
+						long start = System.nanoTime();
+						R result = finisher.apply(container.container());
+						listener.collected(container.metrics(System.nanoTime() - start));
+						return result;
+					}
+				},
+				characteristics.toArray(new Collector.Characteristics[characteristics.size()]));
+	}
+
 	public static <T, K, V> Collector<T, ?, ImmutableMap<K, V>> toImmutableMap(
 			Function<? super T, ? extends K> keyMapper,
 			Function<? super T, ? extends V> valueMapper) {
-		return toImmutableMap(ImmutableMap::builder, keyMapper, valueMapper, UNORDERED, CONCURRENT);
+		return toImmutableMap(keyMapper, valueMapper, 0);
+	}
+
+	public static <T, K, V> Collector<T, ?, ImmutableMap<K, V>> toImmutableMap(
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper,
+			int expectedSize) {
+		checkArgument(expectedSize >= 0, "expectedSize cannot be negative but was: %s", expectedSize);
+		return toImmutableMap(ImmutableMap::builder, () -> new MergingBuffer<>(null, false, expectedSize), keyMapper, valueMapper);
+	}
+
+	public static <T, K, V> Collector<T, ?, ImmutableMap<K, V>> toImmutableMap(
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper,
+			BinaryOperator<V> mergeFunction) {
+		checkNotNull(mergeFunction);
+		return toImmutableMap(ImmutableMap::builder, () -> new MergingBuffer<>(mergeFunction, false, 0), keyMapper, valueMapper);
+	}
+
+	public static <T, K, V> Collector<T, ?, ImmutableMap<K, V>> toImmutableMapInterned(
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper,
+			Interner<K> keyInterner,
+			Interner<V> valueInterner) {
+		return toImmutableMap(interning(keyMapper, keyInterner), interning(valueMapper, valueInterner));
+	}
+
+	public static <T, V> Collector<T, ?, CompactStringMap<V>> toCompactStringMap(
+			Function<? super T, String> keyMapper,
+			Function<? super T, ? extends V> valueMapper) {
+		checkNotNull(keyMapper);
+		checkNotNull(valueMapper);
+		return Collector.of(
+				() -> new PackingBuffer<V>(true),
+				new BiConsumer<PackingBuffer<V>, T>() {
+					@Override
+					public void accept(PackingBuffer<V> buffer, T t) {
+						buffer.put(keyMapper.apply(t), valueMapper.apply(t));
+					}
+				},
+				new BinaryOperator<PackingBuffer<V>>() {
+					@Override
+					public PackingBuffer<V> apply(PackingBuffer<V> buffer, PackingBuffer<V> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				new Function<PackingBuffer<V>, CompactStringMap<V>>() {
+					@Override
+					public CompactStringMap<V> apply(PackingBuffer<V> buffer) {
+						return buffer.toMap();
+					}
+				});
 	}
 
 	public static <T, K extends Comparable<K>, V> Collector<T, ?, ImmutableSortedMap<K, V>> toImmutableSortedMap(
@@ -64,150 +247,712 @@ public class MoreCollectors {
 			Function<? super T, ? extends K> keyMapper,
 			Function<? super T, ? extends V> valueMapper,
 			Comparator<K> comparator) {
-		return toImmutableMap(() -> ImmutableSortedMap.orderedBy(comparator), keyMapper, valueMapper, CONCURRENT);
+		return toImmutableSorted(
+				(entry, entry2) -> comparator.compare(entry.getKey(), entry2.getKey()),
+				isNaturalOrder(comparator) ? SimpleImmutableEntry<K, V>::getKey : null,
+				t -> new SimpleImmutableEntry<K, V>(keyMapper.apply(t), valueMapper.apply(t)),
+				buffer -> ImmutableSortedMap.copyOf(asMap(buffer), comparator));
 	}
 
 	public static <T, K, V> Collector<T, ?, ImmutableBiMap<K, V>> toImmutableBiMap(
 			Function<? super T, ? extends K> keyMapper,
 			Function<? super T, ? extends V> valueMapper) {
-		return toImmutableMap(ImmutableBiMap::builder, keyMapper, valueMapper, UNORDERED, CONCURRENT);
+		return toImmutableMap(ImmutableBiMap::builder, () -> new MergingBuffer<>(null, true, 0), keyMapper, valueMapper);
+	}
+
+	public static <T, K, V> Collector<T, ?, ImmutableBiMap<K, V>> toImmutableBiMap(
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper,
+			BinaryOperator<V> mergeFunction) {
+		checkNotNull(mergeFunction);
+		return toImmutableMap(ImmutableBiMap::builder, () -> new MergingBuffer<>(mergeFunction, true, 0), keyMapper, valueMapper);
+	}
+
+	public static <T, K, V> Collector<T, ?, PersistentHashMap<K, V>> toPersistentHashMap(
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper) {
+		return toPersistentHashMap(PersistentHashMap.of(), keyMapper, valueMapper);
+	}
+
+	public static <T, K, V> Collector<T, ?, PersistentHashMap<K, V>> toPersistentHashMap(
+			PersistentHashMap<K, V> base,
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper) {
+		return toPersistentHashMap(base, keyMapper, valueMapper, null);
+	}
+
+	public static <T, K, V> Collector<T, ?, PersistentHashMap<K, V>> toPersistentHashMap(
+			PersistentHashMap<K, V> base,
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper,
+			BinaryOperator<V> mergeFunction) {
+		checkNotNull(base);
+		checkNotNull(keyMapper);
+		checkNotNull(valueMapper);
+		return Collector.of(
+				SegmentedBuffer::new,
+				new BiConsumer<SegmentedBuffer<Map.Entry<K, V>>, T>() {
+					@Override
+					public void accept(SegmentedBuffer<Map.Entry<K, V>> buffer, T t) {
+						buffer.add(new SimpleImmutableEntry<K, V>(keyMapper.apply(t), valueMapper.apply(t)));
+					}
+				},
+				new BinaryOperator<SegmentedBuffer<Map.Entry<K, V>>>() {
+					@Override
+					public SegmentedBuffer<Map.Entry<K, V>> apply(SegmentedBuffer<Map.Entry<K, V>> buffer, SegmentedBuffer<Map.Entry<K, V>> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				buffer -> base.withAll(buffer, mergeFunction));
 	}
 
 	private static <T, K, V, M extends ImmutableMap<K, V>> Collector<T, ?, M> toImmutableMap(
 			Supplier<ImmutableMap.Builder<K, V>> supplier,
+			Supplier<MergingBuffer<K, V>> bufferSupplier,
 			Function<? super T, ? extends K> keyMapper,
-			Function<? super T, ? extends V> valueMapper,
-			Collector.Characteristics... characteristics) {
+			Function<? super T, ? extends V> valueMapper) {
 		return Collector.of(
-				supplier,
-				new BiConsumer<ImmutableMap.Builder<K, V>, T>() {
+				bufferSupplier,
+				new BiConsumer<MergingBuffer<K, V>, T>() {
 					@Override
-					public void accept(ImmutableMap.Builder<K, V> objectObjectBuilder, T t) {
-						objectObjectBuilder.put(keyMapper.apply(t), valueMapper.apply(t));
+					public void accept(MergingBuffer<K, V> buffer, T t) {
+						buffer.put(keyMapper.apply(t), valueMapper.apply(t));
 					}
 				},
-				new BinaryOperator<ImmutableMap.Builder<K, V>>() {
+				new BinaryOperator<MergingBuffer<K, V>>() {
 					@Override
-					public ImmutableMap.Builder<K, V> apply(ImmutableMap.Builder<K, V> kuBuilder, ImmutableMap.Builder<K, V> kuBuilder2) {
-						return kuBuilder.putAll(kuBuilder2.build());
+					public MergingBuffer<K, V> apply(MergingBuffer<K, V> buffer, MergingBuffer<K, V> buffer2) {
+						return buffer.combine(buffer2);
 					}
 				},
-				new Function<ImmutableMap.Builder<K, V>, M>() {
+				new Function<MergingBuffer<K, V>, M>() {
 					@SuppressWarnings("unchecked")
 					@Override
-					public M apply(ImmutableMap.Builder<K, V> kuBuilder) {
-						return (M) kuBuilder.build();
+					public M apply(MergingBuffer<K, V> buffer) {
+						return (M) buffer.build(supplier);
 					}
 				},
-				characteristics);
+				UNORDERED, CONCURRENT);
 	}
 
-	public static <T> Collector<T, ?, ImmutableList<T>> toImmutableList() {
+	public static <T, K> Collector<T, ?, ImmutableMap<K, ImmutableList<T>>> groupingByImmutable(
+			Function<? super T, ? extends K> classifier) {
+		return groupingByImmutable(classifier, toImmutableList());
+	}
+
+	public static <T, K, A, D> Collector<T, ?, ImmutableMap<K, D>> groupingByImmutable(
+			Function<? super T, ? extends K> classifier,
+			Collector<? super T, A, D> downstream) {
+		return groupingBy(
+				LinkedHashMap::new,
+				classifier,
+				downstream,
+				map -> ImmutableMap.<K, D>builder().putAll(Maps.transformValues(map, downstream.finisher()::apply)).build());
+	}
+
+	public static <T, K extends Comparable<K>, A, D> Collector<T, ?, ImmutableSortedMap<K, D>> groupingByImmutableSorted(
+			Function<? super T, ? extends K> classifier,
+			Collector<? super T, A, D> downstream) {
+		return groupingByImmutableSorted(classifier, Comparator.<K>naturalOrder(), downstream);
+	}
+
+	public static <T, K, A, D> Collector<T, ?, ImmutableSortedMap<K, D>> groupingByImmutableSorted(
+			Function<? super T, ? extends K> classifier,
+			Comparator<K> comparator,
+			Collector<? super T, A, D> downstream) {
+		return groupingBy(
+				() -> new TreeMap<K, A>(comparator),
+				classifier,
+				downstream,
+				map -> ImmutableSortedMap.copyOfSorted(Maps.transformValues(map, downstream.finisher()::apply)));
+	}
+
+	public static <T, K, A, D> Collector<T, ?, ImmutableMap<K, D>> groupingByImmutableConcurrent(
+			Function<? super T, ? extends K> classifier,
+			Collector<? super T, A, D> downstream) {
+		Supplier<A> downstreamSupplier = downstream.supplier();
+		BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+		boolean concurrentDownstream = downstream.characteristics().contains(CONCURRENT);
 		return Collector.of(
-				ImmutableList::builder,
-				new BiConsumer<ImmutableList.Builder<T>, T>() {
+				ConcurrentHashMap::new,
+				new BiConsumer<ConcurrentMap<K, A>, T>() {
 					@Override
-					public void accept(ImmutableList.Builder<T> objectBuilder, T t) {
-						objectBuilder.add(t);
+					public void accept(ConcurrentMap<K, A> map, T t) {
+						K key = checkNotNull(classifier.apply(t), "element cannot be mapped to a null key");
+						A container = map.computeIfAbsent(key, k -> downstreamSupplier.get());
+						if (concurrentDownstream) {
+							downstreamAccumulator.accept(container, t);
+						} else {
+							synchronized (container) {
+								downstreamAccumulator.accept(container, t);
+							}
+						}
 					}
 				},
-				new BinaryOperator<ImmutableList.Builder<T>>() {
+				new BinaryOperator<ConcurrentMap<K, A>>() {
 					@Override
-					public ImmutableList.Builder<T> apply(ImmutableList.Builder<T> objectBuilder, ImmutableList.Builder<T> objectBuilder2) {
-						return objectBuilder.addAll(objectBuilder2.build());
+					public ConcurrentMap<K, A> apply(ConcurrentMap<K, A> map, ConcurrentMap<K, A> map2) {
+						return mergeGroups(map, map2, downstream.combiner());
 					}
 				},
-				new Function<ImmutableList.Builder<T>, ImmutableList<T>>() {
+				new Function<ConcurrentMap<K, A>, ImmutableMap<K, D>>() {
 					@Override
-					public ImmutableList<T> apply(ImmutableList.Builder<T> tBuilder) {
-						return tBuilder.build();
+					public ImmutableMap<K, D> apply(ConcurrentMap<K, A> map) {
+						return ImmutableMap.<K, D>builder().putAll(Maps.transformValues(map, downstream.finisher()::apply)).build();
 					}
 				},
 				UNORDERED, CONCURRENT);
 	}
 
+	private static <T, K, A, D, M extends Map<K, A>, R> Collector<T, ?, R> groupingBy(
+			Supplier<M> mapSupplier,
+			Function<? super T, ? extends K> classifier,
+			Collector<? super T, A, D> downstream,
+			Function<M, R> finisher) {
+		Supplier<A> downstreamSupplier = downstream.supplier();
+		BiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+		return Collector.of(
+				mapSupplier,
+				new BiConsumer<M, T>() {
+					@Override
+					public void accept(M map, T t) {
+						K key = checkNotNull(classifier.apply(t), "element cannot be mapped to a null key");
+						downstreamAccumulator.accept(map.computeIfAbsent(key, k -> downstreamSupplier.get()), t);
+					}
+				},
+				new BinaryOperator<M>() {
+					@Override
+					public M apply(M map, M map2) {
+						return mergeGroups(map, map2, downstream.combiner());
+					}
+				},
+				finisher);
+	}
+
+	private static <K, A, M extends Map<K, A>> M mergeGroups(M map, M map2, BinaryOperator<A> combiner) {
+		for (Map.Entry<K, A> entry : map2.entrySet()) {
+			map.merge(entry.getKey(), entry.getValue(), combiner);
+		}
+		return map;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public static <T> Collector<T, ?, ImmutableList<T>> toImmutableList() {
+		return (Collector) TO_IMMUTABLE_LIST;
+	}
+
+	/**
+	 * Returns a collector whose containers start with room for {@code expectedSize} elements. Every split of a
+	 * parallel stream gets a container of its own, so the expected size is best left to sequential streams.
+	 */
+	public static <T> Collector<T, ?, ImmutableList<T>> toImmutableList(int expectedSize) {
+		checkArgument(expectedSize >= 0, "expectedSize cannot be negative but was: %s", expectedSize);
+		return toImmutableList(() -> new SegmentedBuffer<>(expectedSize), ImmutableList::copyOf);
+	}
+
+	public static <T> Collector<T, ?, ImmutableMappedList<T>> toImmutableMappedList(RecordCodec<T> codec) {
+		return toImmutableMappedList(codec, Paths.get(System.getProperty("java.io.tmpdir")));
+	}
+
+	public static <T> Collector<T, ?, ImmutableMappedList<T>> toImmutableMappedList(RecordCodec<T> codec, Path directory) {
+		checkNotNull(codec);
+		checkNotNull(directory);
+		checkArgument(codec.recordSize() > 0, "recordSize must be positive but was: %s", codec.recordSize());
+		return Collector.of(
+				() -> new MappedBuffer<T>(codec, directory),
+				new BiConsumer<MappedBuffer<T>, T>() {
+					@Override
+					public void accept(MappedBuffer<T> buffer, T t) {
+						buffer.add(t);
+					}
+				},
+				new BinaryOperator<MappedBuffer<T>>() {
+					@Override
+					public MappedBuffer<T> apply(MappedBuffer<T> buffer, MappedBuffer<T> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				new Function<MappedBuffer<T>, ImmutableMappedList<T>>() {
+					@Override
+					public ImmutableMappedList<T> apply(MappedBuffer<T> buffer) {
+						return buffer.finish();
+					}
+				});
+	}
+
+	private static <T> Collector<T, ?, ImmutableList<T>> toImmutableList(
+			Supplier<SegmentedBuffer<T>> supplier,
+			Function<SegmentedBuffer<T>, ImmutableList<T>> finisher) {
+		return Collector.of(
+				supplier,
+				new BiConsumer<SegmentedBuffer<T>, T>() {
+					@Override
+					public void accept(SegmentedBuffer<T> buffer, T t) {
+						buffer.add(t);
+					}
+				},
+				new BinaryOperator<SegmentedBuffer<T>>() {
+					@Override
+					public SegmentedBuffer<T> apply(SegmentedBuffer<T> buffer, SegmentedBuffer<T> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				finisher);
+	}
+
+	public static <T> Collector<T, ?, ImmutableColumns> toImmutableColumns(ColumnSchema<? super T> schema) {
+		checkNotNull(schema);
+		return Collector.of(
+				() -> new ColumnBuffer<T>(schema),
+				new BiConsumer<ColumnBuffer<T>, T>() {
+					@Override
+					public void accept(ColumnBuffer<T> buffer, T t) {
+						buffer.add(t);
+					}
+				},
+				new BinaryOperator<ColumnBuffer<T>>() {
+					@Override
+					public ColumnBuffer<T> apply(ColumnBuffer<T> buffer, ColumnBuffer<T> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				new Function<ColumnBuffer<T>, ImmutableColumns>() {
+					@Override
+					public ImmutableColumns apply(ColumnBuffer<T> buffer) {
+						return buffer.build();
+					}
+				});
+	}
+
+	public static <T> Collector<T, ?, Long> toImmutableListBatches(
+			int batchSize,
+			Consumer<? super ImmutableList<T>> sink) {
+		return toImmutableListBatches(batchSize, Long.MAX_VALUE, t -> 0L, sink);
+	}
+
+	public static <T> Collector<T, ?, Long> toImmutableListBatches(
+			int batchSize,
+			long batchBytes,
+			ToLongFunction<? super T> sizeEstimator,
+			Consumer<? super ImmutableList<T>> sink) {
+		checkArgument(batchSize > 0, "batchSize must be positive but was: %s", batchSize);
+		checkArgument(batchBytes > 0, "batchBytes must be positive but was: %s", batchBytes);
+		checkNotNull(sizeEstimator);
+		checkNotNull(sink);
+		return Collector.of(
+				() -> new BatchingBuffer<T>(batchSize, batchBytes, sizeEstimator, sink),
+				new BiConsumer<BatchingBuffer<T>, T>() {
+					@Override
+					public void accept(BatchingBuffer<T> buffer, T t) {
+						buffer.add(t);
+					}
+				},
+				new BinaryOperator<BatchingBuffer<T>>() {
+					@Override
+					public BatchingBuffer<T> apply(BatchingBuffer<T> buffer, BatchingBuffer<T> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				new Function<BatchingBuffer<T>, Long>() {
+					@Override
+					public Long apply(BatchingBuffer<T> buffer) {
+						return buffer.finish();
+					}
+				},
+				UNORDERED);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public static <T> Collector<CompletableFuture<T>, ?, CompletableFuture<ImmutableList<T>>> toImmutableListAsync() {
+		return (Collector) TO_IMMUTABLE_LIST_ASYNC;
+	}
+
+	public static <T, R> Collector<T, ?, CompletableFuture<ImmutableList<R>>> toImmutableListAsync(
+			Function<? super T, ? extends CompletionStage<? extends R>> asyncMapper,
+			int maxConcurrency) {
+		checkNotNull(asyncMapper);
+		checkArgument(maxConcurrency > 0, "maxConcurrency must be positive but was: %s", maxConcurrency);
+		return toAsync(asyncMapper, maxConcurrency, ImmutableList::copyOf);
+	}
+
+	public static <T, K, V> Collector<CompletableFuture<T>, ?, CompletableFuture<ImmutableMap<K, V>>> toImmutableMapAsync(
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper) {
+		checkNotNull(keyMapper);
+		checkNotNull(valueMapper);
+		return toAsync(
+				future -> future.thenApply(t -> new SimpleImmutableEntry<K, V>(keyMapper.apply(t), valueMapper.apply(t))),
+				Integer.MAX_VALUE,
+				entries -> ImmutableMap.<K, V>builder().putAll(asMap(entries)).build());
+	}
+
+	public static <T, K, V> Collector<T, ?, CompletableFuture<ImmutableMap<K, V>>> toImmutableMapAsync(
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends CompletionStage<? extends V>> asyncValueMapper,
+			int maxConcurrency) {
+		checkNotNull(keyMapper);
+		checkNotNull(asyncValueMapper);
+		checkArgument(maxConcurrency > 0, "maxConcurrency must be positive but was: %s", maxConcurrency);
+		return toAsync(
+				t -> asyncValueMapper.apply(t).thenApply(v -> new SimpleImmutableEntry<K, V>(keyMapper.apply(t), v)),
+				maxConcurrency,
+				entries -> ImmutableMap.<K, V>builder().putAll(asMap(entries)).build());
+	}
+
+	private static <T, R, S> Collector<T, ?, CompletableFuture<S>> toAsync(
+			Function<? super T, ? extends CompletionStage<? extends R>> launcher,
+			int maxConcurrency,
+			Function<? super Collection<R>, ? extends S> finisher) {
+		return collectorOf(
+				() -> {
+					AsyncSlots.Completion<T, R, S> completion = new AsyncSlots.Completion<>(launcher, maxConcurrency, finisher);
+					return () -> new AsyncSlots<>(completion);
+				},
+				new BiConsumer<AsyncSlots<T, R, S>, T>() {
+					@Override
+					public void accept(AsyncSlots<T, R, S> slots, T t) {
+						slots.add(t);
+					}
+				},
+				new BinaryOperator<AsyncSlots<T, R, S>>() {
+					@Override
+					public AsyncSlots<T, R, S> apply(AsyncSlots<T, R, S> slots, AsyncSlots<T, R, S> slots2) {
+						return slots.combine(slots2);
+					}
+				},
+				new Function<AsyncSlots<T, R, S>, CompletableFuture<S>>() {
+					@Override
+					public CompletableFuture<S> apply(AsyncSlots<T, R, S> slots) {
+						return slots.seal();
+					}
+				});
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public static <T> Collector<T, ?, ImmutableSet<T>> toImmutableSet() {
-		return toImmutableSet(ImmutableSet::builder, UNORDERED, CONCURRENT);
+		return (Collector) TO_IMMUTABLE_SET;
+	}
+
+	public static <T> Collector<T, ?, ImmutableSet<T>> toImmutableSet(int expectedSize) {
+		checkArgument(expectedSize >= 0, "expectedSize cannot be negative but was: %s", expectedSize);
+		return toImmutableSet(
+				() -> new StripedBuffer(1, expectedSize),
+				Function.<T>identity(),
+				StripedBuffer::<T>toImmutableSet,
+				UNORDERED, CONCURRENT);
+	}
+
+	public static <T> Collector<T, ?, ImmutableSet<T>> toImmutableSetInterned(Interner<T> interner) {
+		checkNotNull(interner);
+		return toImmutableSet(
+				() -> new StripedBuffer(1),
+				interner::intern,
+				buffer -> ImmutableSet.copyOf(buffer.<T>asCollection()),
+				UNORDERED, CONCURRENT);
 	}
 
+	public static Collector<String, ?, CompactStringSet> toCompactStringSet() {
+		return TO_COMPACT_STRING_SET;
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public static <T extends Comparable<T>> Collector<T, ?, ImmutableSortedSet<T>> toImmutableSortedSet() {
-		return toImmutableSortedSet(Comparator.<T>naturalOrder());
+		return (Collector) TO_IMMUTABLE_SORTED_SET;
 	}
 
 	public static <T> Collector<T, ?, ImmutableSortedSet<T>> toImmutableSortedSet(Comparator<T> comparator) {
-		return toImmutableSet(() -> {
-			return ImmutableSortedSet.orderedBy(comparator);
-		}, CONCURRENT);
+		return toImmutableSorted(
+				comparator,
+				isNaturalOrder(comparator) ? Function.<T>identity() : null,
+				Function.<T>identity(),
+				buffer -> ImmutableSortedSet.copyOf(comparator, buffer));
 	}
 
-	private static <T, S extends ImmutableSet<T>, B extends ImmutableSet.Builder<T>> Collector<T, B, S> toImmutableSet(
-			Supplier<B> supplier,
-			Collector.Characteristics... characteristics) {
+	public static <T> Collector<T, ?, ImmutableSortedSet<T>> toImmutableTopK(int k, Comparator<T> comparator) {
+		return toImmutableTopK(k, comparator, true, buffer -> ImmutableSortedSet.copyOf(comparator, buffer));
+	}
+
+	public static <T> Collector<T, ?, ImmutableSortedSet<T>> toImmutableBottomK(int k, Comparator<T> comparator) {
+		return toImmutableTopK(k, Collections.reverseOrder(comparator), true, buffer -> ImmutableSortedSet.copyOf(comparator, buffer));
+	}
+
+	public static <T> Collector<T, ?, ImmutableList<T>> toImmutableTopKList(int k, Comparator<? super T> comparator) {
+		return toImmutableTopK(k, comparator, false, ImmutableList::copyOf);
+	}
+
+	public static <T> Collector<T, ?, ImmutableList<T>> toImmutableBottomKList(int k, Comparator<? super T> comparator) {
+		return toImmutableTopK(k, Collections.reverseOrder(comparator), false, buffer -> Ordering.from(comparator).immutableSortedCopy(buffer));
+	}
+
+	private static <T, R> Collector<T, ?, R> toImmutableTopK(
+			int k,
+			Comparator<? super T> comparator,
+			boolean distinct,
+			Function<TopKBuffer<T>, R> finisher) {
+		checkArgument(k >= 0, "k cannot be negative but was: %s", k);
+		checkNotNull(comparator);
 		return Collector.of(
-				supplier,
-				new BiConsumer<B, T>() {
+				() -> new TopKBuffer<T>(k, comparator, distinct),
+				new BiConsumer<TopKBuffer<T>, T>() {
 					@Override
-					public void accept(B objectBuilder, T t) {
-						objectBuilder.add(t);
+					public void accept(TopKBuffer<T> buffer, T t) {
+						buffer.add(t);
 					}
 				},
-				new BinaryOperator<B>() {
-					@SuppressWarnings("unchecked")
+				new BinaryOperator<TopKBuffer<T>>() {
 					@Override
-					public B apply(B objectBuilder, B objectBuilder2) {
-						return (B) objectBuilder.addAll(objectBuilder2.build());
+					public TopKBuffer<T> apply(TopKBuffer<T> buffer, TopKBuffer<T> buffer2) {
+						return buffer.combine(buffer2);
 					}
 				},
-				new Function<B, S>() {
-					@SuppressWarnings("unchecked")
+				finisher);
+	}
+
+	public static <T> Collector<T, ?, ImmutableList<T>> toImmutableSample(int n) {
+		return toImmutableSample(n, null, null);
+	}
+
+	/**
+	 * Returns a collector whose sample is reproducible for a given seed on sequential streams. Parallel streams still
+	 * sample correctly, but which elements end up in which split is up to the scheduler.
+	 */
+	public static <T> Collector<T, ?, ImmutableList<T>> toImmutableSample(int n, long seed) {
+		return toImmutableSample(n, null, Long.valueOf(seed));
+	}
+
+	public static <T> Collector<T, ?, ImmutableList<T>> toImmutableWeightedSample(int n, ToDoubleFunction<? super T> weigher) {
+		checkNotNull(weigher);
+		return toImmutableSample(n, weigher, null);
+	}
+
+	public static <T> Collector<T, ?, ImmutableList<T>> toImmutableWeightedSample(
+			int n,
+			ToDoubleFunction<? super T> weigher,
+			long seed) {
+		checkNotNull(weigher);
+		return toImmutableSample(n, weigher, Long.valueOf(seed));
+	}
+
+	private static <T> Collector<T, ?, ImmutableList<T>> toImmutableSample(
+			int n,
+			ToDoubleFunction<? super T> weigher,
+			Long seed) {
+		checkArgument(n >= 0, "n cannot be negative but was: %s", n);
+		return collectorOf(
+				() -> {
+					if (seed == null) {
+						return () -> new SamplingBuffer<T>(n, new SplittableRandom(), weigher);
+					}
+					// The containers of a seeded collection split independent generators off a root of their own, so
+					// the first container, the only one of a sequential stream, always draws the same keys.
+					SplittableRandom root = new SplittableRandom(seed);
+					return () -> {
+						synchronized (root) {
+							return new SamplingBuffer<T>(n, root.split(), weigher);
+						}
+					};
+				},
+				new BiConsumer<SamplingBuffer<T>, T>() {
 					@Override
-					public S apply(B tBuilder) {
-						return (S) tBuilder.build();
+					public void accept(SamplingBuffer<T> buffer, T t) {
+						buffer.add(t);
 					}
 				},
+				new BinaryOperator<SamplingBuffer<T>>() {
+					@Override
+					public SamplingBuffer<T> apply(SamplingBuffer<T> buffer, SamplingBuffer<T> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				new Function<SamplingBuffer<T>, ImmutableList<T>>() {
+					@Override
+					public ImmutableList<T> apply(SamplingBuffer<T> buffer) {
+						return ImmutableList.copyOf(buffer);
+					}
+				},
+				UNORDERED);
+	}
+
+	/**
+	 * Returns a collector like {@link Collector#of} whose container supplier is obtained anew from {@code suppliers}
+	 * whenever a stream asks for it, which streams do once per collection. Containers of one collection can share
+	 * state through their supplier without that state leaking into other collections.
+	 */
+	private static <T, A, R> Collector<T, A, R> collectorOf(
+			Supplier<? extends Supplier<A>> suppliers,
+			BiConsumer<A, T> accumulator,
+			BinaryOperator<A> combiner,
+			Function<A, R> finisher,
+			Collector.Characteristics... characteristics) {
+		Set<Collector.Characteristics> characteristicSet = Collections.unmodifiableSet(
+				characteristics.length == 0
+						? EnumSet.noneOf(Collector.Characteristics.class)
+						: EnumSet.of(characteristics[0], characteristics));
+		return new Collector<T, A, R>() {
+			@Override
+			public Supplier<A> supplier() {
+				return suppliers.get();
+			}
+
+			@Override
+			public BiConsumer<A, T> accumulator() {
+				return accumulator;
+			}
+
+			@Override
+			public BinaryOperator<A> combiner() {
+				return combiner;
+			}
+
+			@Override
+			public Function<A, R> finisher() {
+				return finisher;
+			}
+
+			@Override
+			public Set<Characteristics> characteristics() {
+				return characteristicSet;
+			}
+		};
+	}
+
+	private static <T, E, S extends ImmutableSet<E>> Collector<T, ?, S> toImmutableSet(
+			Supplier<StripedBuffer> supplier,
+			Function<? super T, ? extends E> mapper,
+			Function<StripedBuffer, S> finisher,
+			Collector.Characteristics... characteristics) {
+		return Collector.of(
+				supplier,
+				new BiConsumer<StripedBuffer, T>() {
+					@Override
+					public void accept(StripedBuffer buffer, T t) {
+						buffer.add(mapper.apply(t));
+					}
+				},
+				new BinaryOperator<StripedBuffer>() {
+					@Override
+					public StripedBuffer apply(StripedBuffer buffer, StripedBuffer buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				finisher,
 				characteristics);
 	}
 
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public static <T> Collector<T, ?, ImmutableMultiset<T>> toImmutableMultiset() {
-		return toImmutableMultiset(ImmutableMultiset::builder, UNORDERED, CONCURRENT);
+		return (Collector) TO_IMMUTABLE_MULTISET;
+	}
+
+	public static <T, E> Collector<T, ?, ImmutableMultiset<E>> toImmutableMultiset(
+			Function<? super T, ? extends E> elementMapper,
+			ToIntFunction<? super T> countMapper) {
+		return toImmutableMultiset(ImmutableMultiset::builder, elementMapper, countMapper, UNORDERED);
 	}
 
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public static <T extends Comparable<T>> Collector<T, ?, ImmutableSortedMultiset<T>> toImmutableSortedMultiset() {
-		return toImmutableSortedMultiset(Comparator.<T>naturalOrder());
+		return (Collector) TO_IMMUTABLE_SORTED_MULTISET;
 	}
 
 	public static <T> Collector<T, ?, ImmutableSortedMultiset<T>> toImmutableSortedMultiset(Comparator<T> comparator) {
-		return toImmutableMultiset(() -> ImmutableSortedMultiset.orderedBy(comparator), CONCURRENT);
+		return toImmutableSortedMultiset(comparator, Function.identity(), t -> 1);
 	}
 
-	private static <T, B extends ImmutableMultiset.Builder<T>, M extends ImmutableMultiset<T>> Collector<T, ?, M> toImmutableMultiset(
+	public static <T, E> Collector<T, ?, ImmutableSortedMultiset<E>> toImmutableSortedMultiset(
+			Comparator<E> comparator,
+			Function<? super T, ? extends E> elementMapper,
+			ToIntFunction<? super T> countMapper) {
+		return toImmutableMultiset(() -> ImmutableSortedMultiset.orderedBy(comparator), elementMapper, countMapper);
+	}
+
+	private static <T, E, B extends ImmutableMultiset.Builder<E>, M extends ImmutableMultiset<E>> Collector<T, ?, M> toImmutableMultiset(
 			Supplier<B> supplier,
+			Function<? super T, ? extends E> elementMapper,
+			ToIntFunction<? super T> countMapper,
 			Collector.Characteristics... characteristics) {
 		return Collector.of(
-				supplier,
-				new BiConsumer<B, T>() {
+				CountingBuffer::new,
+				new BiConsumer<CountingBuffer<E>, T>() {
 					@Override
-					public void accept(B objectBuilder, T t) {
-						objectBuilder.add(t);
+					public void accept(CountingBuffer<E> buffer, T t) {
+						buffer.add(elementMapper.apply(t), countMapper.applyAsInt(t));
 					}
 				},
-				new BinaryOperator<B>() {
-					@SuppressWarnings("unchecked")
+				new BinaryOperator<CountingBuffer<E>>() {
 					@Override
-					public B apply(B objectBuilder, B objectBuilder2) {
-						return (B) objectBuilder.addAll(objectBuilder2.build());
+					public CountingBuffer<E> apply(CountingBuffer<E> buffer, CountingBuffer<E> buffer2) {
+						return buffer.combine(buffer2);
 					}
 				},
-				new Function<B, M>() {
+				new Function<CountingBuffer<E>, M>() {
 					@SuppressWarnings("unchecked")
 					@Override
-					public M apply(B tBuilder) {
-						return (M) tBuilder.build();
+					public M apply(CountingBuffer<E> buffer) {
+						B builder = supplier.get();
+						buffer.forEach(builder::addCopies);
+						return (M) builder.build();
 					}
 				},
 				characteristics);
 	}
 
+	/**
+	 * Returns a collector of the elements making up at least {@code support} of the stream, with estimated counts,
+	 * in fixed memory. Counts are overestimated by at most {@code errorBound} times the stream size, so every element
+	 * above the support is returned and none below {@code support - errorBound} is.
+	 */
+	public static <T> Collector<T, ?, ImmutableMultiset<T>> toImmutableHeavyHitters(double support, double errorBound) {
+		return toImmutableHeavyHitters(ImmutableMultiset::builder, support, errorBound);
+	}
+
+	public static <T extends Comparable<T>> Collector<T, ?, ImmutableSortedMultiset<T>> toImmutableSortedHeavyHitters(
+			double support,
+			double errorBound) {
+		return toImmutableSortedHeavyHitters(Comparator.<T>naturalOrder(), support, errorBound);
+	}
+
+	public static <T> Collector<T, ?, ImmutableSortedMultiset<T>> toImmutableSortedHeavyHitters(
+			Comparator<T> comparator,
+			double support,
+			double errorBound) {
+		checkNotNull(comparator);
+		return toImmutableHeavyHitters(() -> ImmutableSortedMultiset.orderedBy(comparator), support, errorBound);
+	}
+
+	private static <T, B extends ImmutableMultiset.Builder<T>, M extends ImmutableMultiset<T>> Collector<T, ?, M> toImmutableHeavyHitters(
+			Supplier<B> supplier,
+			double support,
+			double errorBound) {
+		checkArgument(errorBound > 0 && errorBound < 1, "errorBound must be between 0 and 1 but was: %s", errorBound);
+		checkArgument(support >= errorBound && support <= 1, "support must be between errorBound and 1 but was: %s", support);
+		int capacity = (int) Math.min(Math.ceil(1 / errorBound), Integer.MAX_VALUE - 8);
+		return Collector.of(
+				() -> new HeavyHittersSketch<T>(capacity),
+				new BiConsumer<HeavyHittersSketch<T>, T>() {
+					@Override
+					public void accept(HeavyHittersSketch<T> sketch, T t) {
+						sketch.add(t);
+					}
+				},
+				new BinaryOperator<HeavyHittersSketch<T>>() {
+					@Override
+					public HeavyHittersSketch<T> apply(HeavyHittersSketch<T> sketch, HeavyHittersSketch<T> sketch2) {
+						return sketch.combine(sketch2);
+					}
+				},
+				new Function<HeavyHittersSketch<T>, M>() {
+					@SuppressWarnings("unchecked")
+					@Override
+					public M apply(HeavyHittersSketch<T> sketch) {
+						B builder = supplier.get();
+						sketch.forEach((long) Math.max(1, Math.ceil(support * sketch.total())), builder::addCopies);
+						return (M) builder.build();
+					}
+				},
+				UNORDERED);
+	}
+
 	public static <T, K, V> Collector<T, ?, ImmutableMultimap<K, V>> toImmutableMultimap(
 			Function<? super T, ? extends K> keyMapper,
 			Function<? super T, ? extends V> valueMapper) {
@@ -220,6 +965,31 @@ public class MoreCollectors {
 		return toImmutableMultimap(ImmutableListMultimap::builder, keyMapper, valueMapper, UNORDERED, CONCURRENT);
 	}
 
+	public static <T, K, V> Collector<T, ?, ImmutableCompactListMultimap<K, V>> toImmutableCompactListMultimap(
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper) {
+		return Collector.of(
+				CompactMultimapBuffer::new,
+				new BiConsumer<CompactMultimapBuffer<K, V>, T>() {
+					@Override
+					public void accept(CompactMultimapBuffer<K, V> buffer, T t) {
+						buffer.put(keyMapper.apply(t), valueMapper.apply(t));
+					}
+				},
+				new BinaryOperator<CompactMultimapBuffer<K, V>>() {
+					@Override
+					public CompactMultimapBuffer<K, V> apply(CompactMultimapBuffer<K, V> buffer, CompactMultimapBuffer<K, V> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				new Function<CompactMultimapBuffer<K, V>, ImmutableCompactListMultimap<K, V>>() {
+					@Override
+					public ImmutableCompactListMultimap<K, V> apply(CompactMultimapBuffer<K, V> buffer) {
+						return buffer.build();
+					}
+				});
+	}
+
 	public static <T, K, V> Collector<T, ?, ImmutableSetMultimap<K, V>> toImmutableSetMultimap(
 			Function<? super T, ? extends K> keyMapper,
 			Function<? super T, ? extends V> valueMapper) {
@@ -246,31 +1016,40 @@ public class MoreCollectors {
 				keyMapper, valueMapper, UNORDERED, CONCURRENT);
 	}
 
+	public static <T, K, V> Collector<T, ?, ImmutableSetMultimap<K, V>> toImmutableSetMultimapInterned(
+			Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends V> valueMapper,
+			Interner<K> keyInterner,
+			Interner<V> valueInterner) {
+		return toImmutableSetMultimap(interning(keyMapper, keyInterner), interning(valueMapper, valueInterner));
+	}
+
 	private static <T, K, V, B extends ImmutableMultimap.Builder<K, V>, M extends ImmutableMultimap<K, V>> Collector<T, ?, M> toImmutableMultimap(
 			Supplier<B> supplier,
 			Function<? super T, ? extends K> keyMapper,
 			Function<? super T, ? extends V> valueMapper,
 			Collector.Characteristics... characteristics) {
 		return Collector.of(
-				supplier,
-				new BiConsumer<B, T>() {
+				() -> new StripedBuffer(2),
+				new BiConsumer<StripedBuffer, T>() {
 					@Override
-					public void accept(B objectBuilder, T t) {
-						objectBuilder.put(keyMapper.apply(t), valueMapper.apply(t));
+					public void accept(StripedBuffer buffer, T t) {
+						buffer.add(keyMapper.apply(t), valueMapper.apply(t));
 					}
 				},
-				new BinaryOperator<B>() {
-					@SuppressWarnings("unchecked")
+				new BinaryOperator<StripedBuffer>() {
 					@Override
-					public B apply(B objectBuilder, B objectBuilder2) {
-						return (B) objectBuilder.putAll(objectBuilder2.build());
+					public StripedBuffer apply(StripedBuffer buffer, StripedBuffer buffer2) {
+						return buffer.combine(buffer2);
 					}
 				},
-				new Function<B, M>() {
+				new Function<StripedBuffer, M>() {
 					@SuppressWarnings("unchecked")
 					@Override
-					public M apply(B tBuilder) {
-						return (M) tBuilder.build();
+					public M apply(StripedBuffer buffer) {
+						B builder = supplier.get();
+						buffer.<K, V>forEach(builder::put);
+						return (M) builder.build();
 					}
 				},
 				characteristics);
@@ -280,70 +1059,185 @@ public class MoreCollectors {
 			Function<? super T, ? extends R> rowMapper,
 			Function<? super T, ? extends C> columnMapper,
 			Function<? super T, ? extends V> valueMapper) {
-		return Collector.of(
-				ImmutableTable::builder,
-				new BiConsumer<ImmutableTable.Builder<R, C, V>, T>() {
+		return toImmutableTable(ImmutableTable::builder, rowMapper, columnMapper, valueMapper, UNORDERED, CONCURRENT);
+	}
+
+	public static <T, R extends Comparable<R>, C extends Comparable<C>, V> Collector<T, ?, ImmutableTable<R, C, V>> toImmutableSortedTable(
+			Function<? super T, ? extends R> rowMapper,
+			Function<? super T, ? extends C> columnMapper,
+			Function<? super T, ? extends V> valueMapper) {
+		return toImmutableSortedTable(rowMapper, columnMapper, valueMapper, Comparator.<R>naturalOrder(), Comparator.<C>naturalOrder());
+	}
+
+	public static <T, R, C, V> Collector<T, ?, ImmutableTable<R, C, V>> toImmutableSortedTable(
+			Function<? super T, ? extends R> rowMapper,
+			Function<? super T, ? extends C> columnMapper,
+			Function<? super T, ? extends V> valueMapper,
+			Comparator<R> rowComparator,
+			Comparator<C> columnComparator) {
+		return toImmutableSorted(
+				new Comparator<Table.Cell<R, C, V>>() {
 					@Override
-					public void accept(ImmutableTable.Builder<R, C, V> rcvBuilder, T t) {
-						rcvBuilder.put(rowMapper.apply(t), columnMapper.apply(t), valueMapper.apply(t));
+					public int compare(Table.Cell<R, C, V> cell, Table.Cell<R, C, V> cell2) {
+						int rowCompare = rowComparator.compare(cell.getRowKey(), cell2.getRowKey());
+						return rowCompare != 0 ? rowCompare : columnComparator.compare(cell.getColumnKey(), cell2.getColumnKey());
 					}
 				},
-				new BinaryOperator<ImmutableTable.Builder<R, C, V>>() {
+				null,
+				t -> Tables.<R, C, V>immutableCell(rowMapper.apply(t), columnMapper.apply(t), valueMapper.apply(t)),
+				buffer -> {
+					ImmutableTable.Builder<R, C, V> builder = ImmutableTable.<R, C, V>builder()
+							.orderRowsBy(rowComparator)
+							.orderColumnsBy(columnComparator);
+					buffer.forEach(builder::put);
+					return builder.build();
+				});
+	}
+
+	/**
+	 * Returns a collector of a table over the row and column keys found in the stream. Its array spans every pair of
+	 * those keys, so it suits dense data: past 65,536 cells, streams filling less than one cell in 64 are rejected
+	 * instead of allocating a mostly empty array. {@link #toImmutableTable} is the collector for sparse data.
+	 */
+	public static <T, R, C, V> Collector<T, ?, ImmutableArrayTable<R, C, V>> toImmutableArrayTable(
+			Function<? super T, ? extends R> rowMapper,
+			Function<? super T, ? extends C> columnMapper,
+			Function<? super T, ? extends V> valueMapper) {
+		return Collector.of(
+				SegmentedBuffer::new,
+				new BiConsumer<SegmentedBuffer<Table.Cell<R, C, V>>, T>() {
 					@Override
-					public ImmutableTable.Builder<R, C, V> apply(ImmutableTable.Builder<R, C, V> rcvBuilder, ImmutableTable.Builder<R, C, V> rcvBuilder2) {
-						return rcvBuilder.putAll(rcvBuilder2.build());
+					public void accept(SegmentedBuffer<Table.Cell<R, C, V>> buffer, T t) {
+						buffer.add(Tables.immutableCell(rowMapper.apply(t), columnMapper.apply(t), valueMapper.apply(t)));
 					}
 				},
-				new Function<ImmutableTable.Builder<R, C, V>, ImmutableTable<R, C, V>>() {
+				new BinaryOperator<SegmentedBuffer<Table.Cell<R, C, V>>>() {
 					@Override
-					public ImmutableTable<R, C, V> apply(ImmutableTable.Builder<R, C, V> rcvBuilder) {
-						return rcvBuilder.build();
+					public SegmentedBuffer<Table.Cell<R, C, V>> apply(SegmentedBuffer<Table.Cell<R, C, V>> buffer, SegmentedBuffer<Table.Cell<R, C, V>> buffer2) {
+						return buffer.combine(buffer2);
 					}
 				},
-				UNORDERED, CONCURRENT);
+				new Function<SegmentedBuffer<Table.Cell<R, C, V>>, ImmutableArrayTable<R, C, V>>() {
+					@Override
+					public ImmutableArrayTable<R, C, V> apply(SegmentedBuffer<Table.Cell<R, C, V>> buffer) {
+						return ImmutableArrayTable.copyOf(buffer);
+					}
+				});
 	}
 
-	public static <T, R extends Comparable<R>, C extends Comparable<C>, V> Collector<T, ?, ImmutableTable<R, C, V>> toImmutableSortedTable(
+	public static <T, R, C, V> Collector<T, ?, ImmutableArrayTable<R, C, V>> toImmutableArrayTable(
 			Function<? super T, ? extends R> rowMapper,
 			Function<? super T, ? extends C> columnMapper,
-			Function<? super T, ? extends V> valueMapper) {
-		return toImmutableSortedTable(rowMapper, columnMapper, valueMapper, Comparator.<R>naturalOrder(), Comparator.<C>naturalOrder());
+			Function<? super T, ? extends V> valueMapper,
+			Iterable<? extends R> rowKeys,
+			Iterable<? extends C> columnKeys) {
+		ImmutableMap<R, Integer> rowIndex = ImmutableArrayTable.index(rowKeys);
+		ImmutableMap<C, Integer> columnIndex = ImmutableArrayTable.index(columnKeys);
+		ImmutableArrayTable.checkedArea(rowIndex.size(), columnIndex.size());
+		return Collector.of(
+				() -> new ArrayTableBuffer<R, C, V>(rowIndex, columnIndex),
+				new BiConsumer<ArrayTableBuffer<R, C, V>, T>() {
+					@Override
+					public void accept(ArrayTableBuffer<R, C, V> buffer, T t) {
+						buffer.put(rowMapper.apply(t), columnMapper.apply(t), valueMapper.apply(t));
+					}
+				},
+				new BinaryOperator<ArrayTableBuffer<R, C, V>>() {
+					@Override
+					public ArrayTableBuffer<R, C, V> apply(ArrayTableBuffer<R, C, V> buffer, ArrayTableBuffer<R, C, V> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				new Function<ArrayTableBuffer<R, C, V>, ImmutableArrayTable<R, C, V>>() {
+					@Override
+					public ImmutableArrayTable<R, C, V> apply(ArrayTableBuffer<R, C, V> buffer) {
+						return buffer.toTable();
+					}
+				},
+				UNORDERED, CONCURRENT);
 	}
 
-	public static <T, R, C, V> Collector<T, ?, ImmutableTable<R, C, V>> toImmutableSortedTable(
+	private static <T, R, C, V> Collector<T, ?, ImmutableTable<R, C, V>> toImmutableTable(
+			Supplier<ImmutableTable.Builder<R, C, V>> supplier,
 			Function<? super T, ? extends R> rowMapper,
 			Function<? super T, ? extends C> columnMapper,
 			Function<? super T, ? extends V> valueMapper,
-			Comparator<R> rowComparator,
-			Comparator<C> columnComparator) {
+			Collector.Characteristics... characteristics) {
 		return Collector.of(
-				new Supplier<ImmutableTable.Builder<R, C, V>>() {
+				() -> new StripedBuffer(1),
+				new BiConsumer<StripedBuffer, T>() {
 					@Override
-					public ImmutableTable.Builder<R, C, V> get() {
-						return ImmutableTable.<R, C, V>builder()
-								.orderRowsBy(rowComparator)
-								.orderColumnsBy(columnComparator);
+					public void accept(StripedBuffer buffer, T t) {
+						buffer.add(Tables.immutableCell(rowMapper.apply(t), columnMapper.apply(t), valueMapper.apply(t)));
 					}
 				},
-				new BiConsumer<ImmutableTable.Builder<R, C, V>, T>() {
+				new BinaryOperator<StripedBuffer>() {
 					@Override
-					public void accept(ImmutableTable.Builder<R, C, V> rcvBuilder, T t) {
-						rcvBuilder.put(rowMapper.apply(t), columnMapper.apply(t), valueMapper.apply(t));
+					public StripedBuffer apply(StripedBuffer buffer, StripedBuffer buffer2) {
+						return buffer.combine(buffer2);
 					}
 				},
-				new BinaryOperator<ImmutableTable.Builder<R, C, V>>() {
+				new Function<StripedBuffer, ImmutableTable<R, C, V>>() {
 					@Override
-					public ImmutableTable.Builder<R, C, V> apply(ImmutableTable.Builder<R, C, V> rcvBuilder, ImmutableTable.Builder<R, C, V> rcvBuilder2) {
-						return rcvBuilder.putAll(rcvBuilder2.build());
+					public ImmutableTable<R, C, V> apply(StripedBuffer buffer) {
+						ImmutableTable.Builder<R, C, V> builder = supplier.get();
+						buffer.<Table.Cell<R, C, V>>forEach(builder::put);
+						return builder.build();
 					}
 				},
-				new Function<ImmutableTable.Builder<R, C, V>, ImmutableTable<R, C, V>>() {
+				characteristics);
+	}
+
+	private static <T, E, R> Collector<T, ?, R> toImmutableSorted(
+			Comparator<? super E> comparator,
+			Function<? super E, ?> radixKey,
+			Function<? super T, ? extends E> mapper,
+			Function<SortingBuffer<E>, R> finisher) {
+		return Collector.of(
+				() -> new SortingBuffer<E>(comparator, radixKey),
+				new BiConsumer<SortingBuffer<E>, T>() {
 					@Override
-					public ImmutableTable<R, C, V> apply(ImmutableTable.Builder<R, C, V> rcvBuilder) {
-						return rcvBuilder.build();
+					public void accept(SortingBuffer<E> buffer, T t) {
+						buffer.add(mapper.apply(t));
 					}
 				},
-				CONCURRENT);
+				new BinaryOperator<SortingBuffer<E>>() {
+					@Override
+					public SortingBuffer<E> apply(SortingBuffer<E> buffer, SortingBuffer<E> buffer2) {
+						return buffer.combine(buffer2);
+					}
+				},
+				finisher);
+	}
+
+	private static <T, E> Function<T, E> interning(Function<? super T, ? extends E> mapper, Interner<E> interner) {
+		checkNotNull(mapper);
+		checkNotNull(interner);
+		return t -> interner.intern(mapper.apply(t));
+	}
+
+	private static boolean isNaturalOrder(Comparator<?> comparator) {
+		return comparator == Comparator.naturalOrder() || comparator == Ordering.natural();
+	}
+
+	private static <K, V> Map<K, V> asMap(Collection<? extends Map.Entry<K, V>> entries) {
+		Collection<Map.Entry<K, V>> entryCollection = Collections.unmodifiableCollection(entries);
+		return new AbstractMap<K, V>() {
+			@Override
+			public Set<Entry<K, V>> entrySet() {
+				return new AbstractSet<Entry<K, V>>() {
+					@Override
+					public Iterator<Entry<K, V>> iterator() {
+						return entryCollection.iterator();
+					}
+
+					@Override
+					public int size() {
+						return entryCollection.size();
+					}
+				};
+			}
+		};
 	}
 
 }
@@ -0,0 +1,98 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Table;
+import com.google.common.collect.Tables;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+public class MoreStreams {
+
+	private MoreStreams() {
+	}
+
+	public static <T> Stream<ImmutableList<T>> batches(Stream<T> stream, int batchSize) {
+		checkArgument(batchSize > 0, "batchSize must be positive but was: %s", batchSize);
+		boolean parallel = stream.isParallel();
+		return StreamSupport.stream(new BatchSpliterator<>(stream.spliterator(), batchSize), parallel)
+				.onClose(stream::close);
+	}
+
+	public static <E> Stream<E> stream(ImmutableMultiset<E> multiset) {
+		ImmutableList<Multiset.Entry<E>> entries = multiset.entrySet().asList();
+		long[] counts = new long[entries.size()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = entries.get(i).getCount();
+		}
+		return StreamSupport.stream(GroupedSpliterator.<Multiset.Entry<E>, E>of(
+				entries,
+				counts,
+				entry -> Collections.nCopies(entry.getCount(), entry.getElement()),
+				false,
+				0), false);
+	}
+
+	public static <K, V> Stream<Map.Entry<K, V>> entries(ImmutableMultimap<K, V> multimap) {
+		ImmutableList<Map.Entry<K, Collection<V>>> keys = multimap.asMap().entrySet().asList();
+		long[] sizes = new long[keys.size()];
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = keys.get(i).getValue().size();
+		}
+		return StreamSupport.stream(GroupedSpliterator.<Map.Entry<K, Collection<V>>, Map.Entry<K, V>>of(
+				keys,
+				sizes,
+				key -> Lists.transform(ImmutableList.copyOf(key.getValue()), value -> Maps.immutableEntry(key.getKey(), value)),
+				false,
+				0), false);
+	}
+
+	public static <R, C, V> Stream<Table.Cell<R, C, V>> cells(ImmutableTable<R, C, V> table) {
+		ImmutableList<Map.Entry<R, Map<C, V>>> rows = table.rowMap().entrySet().asList();
+		long[] sizes = new long[rows.size()];
+		for (int i = 0; i < sizes.length; i++) {
+			sizes[i] = rows.get(i).getValue().size();
+		}
+		return StreamSupport.stream(GroupedSpliterator.<Map.Entry<R, Map<C, V>>, Table.Cell<R, C, V>>of(
+				rows,
+				sizes,
+				row -> Lists.transform(ImmutableMap.copyOf(row.getValue()).entrySet().asList(),
+						cell -> Tables.immutableCell(row.getKey(), cell.getKey(), cell.getValue())),
+				true,
+				Spliterator.DISTINCT), false);
+	}
+
+}
@@ -0,0 +1,288 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Insertion-ordered set of strings packed as UTF-8 into one contiguous byte array. A string is identified by its
+ * position; an {@code int} array of end offsets delimits the bytes of each position, a second one caches the
+ * {@link String#hashCode()} of each, and an open-addressing table of positions indexes them. Lookups compare the
+ * probed key with the packed bytes directly, char by char, without encoding or decoding anything.
+ * <p>
+ * A lone surrogate, which strict UTF-8 cannot represent, is packed as the three bytes of its own code point (the
+ * generalized UTF-8 also known as WTF-8), so every {@code String} round-trips unchanged and two strings are equal
+ * exactly when their packed bytes are.
+ */
+final class PackedStrings {
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private static final int MAX_BYTES = Integer.MAX_VALUE - 8;
+
+	private byte[] bytes = new byte[INITIAL_CAPACITY * 8];
+
+	private int[] ends = new int[INITIAL_CAPACITY];
+
+	private int[] hashes = new int[INITIAL_CAPACITY];
+
+	private int[] table = new int[INITIAL_CAPACITY * 2];
+
+	private int size;
+
+	/**
+	 * Returns the position of the string, or {@code -1 - position} of the newly added string when it was not present.
+	 */
+	int add(String string) {
+		checkNotNull(string);
+		int hash = string.hashCode();
+		int mask = table.length - 1;
+		int slot = KeyIndex.smear(hash) & mask;
+		for (int position = table[slot] - 1; position >= 0; position = table[slot] - 1) {
+			if (hashes[position] == hash && equalsAt(position, string)) {
+				return position;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int start = start(size);
+		int length = string.length();
+		ensureBytes(start, length);
+		int end = start;
+		for (int i = 0; i < length; i++) {
+			char c = string.charAt(i);
+			if (c >= 0x80) {
+				ensureBytes(start, (long) length * 3);
+				end = encode(string, i, end);
+				break;
+			}
+			bytes[end++] = (byte) c;
+		}
+		return -1 - insert(slot, end, hash);
+	}
+
+	/**
+	 * Adds the string at the given position of another instance by copying its bytes, without decoding it.
+	 */
+	int addFrom(PackedStrings other, int index) {
+		int hash = other.hashes[index];
+		int otherStart = other.start(index);
+		int length = other.ends[index] - otherStart;
+		int mask = table.length - 1;
+		int slot = KeyIndex.smear(hash) & mask;
+		for (int position = table[slot] - 1; position >= 0; position = table[slot] - 1) {
+			if (hashes[position] == hash && ends[position] - start(position) == length
+					&& rangeEquals(bytes, start(position), other.bytes, otherStart, length)) {
+				return position;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int start = start(size);
+		ensureBytes(start, length);
+		System.arraycopy(other.bytes, otherStart, bytes, start, length);
+		return -1 - insert(slot, start + length, hash);
+	}
+
+	int indexOf(Object object) {
+		if (!(object instanceof String)) {
+			return -1;
+		}
+		String string = (String) object;
+		int hash = string.hashCode();
+		int mask = table.length - 1;
+		for (int slot = KeyIndex.smear(hash) & mask; ; slot = (slot + 1) & mask) {
+			int position = table[slot] - 1;
+			if (position < 0 || hashes[position] == hash && equalsAt(position, string)) {
+				return position;
+			}
+		}
+	}
+
+	String get(int index) {
+		int start = start(index);
+		int end = ends[index];
+		for (int position = start; position < end; position++) {
+			if (bytes[position] < 0) {
+				return decode(start, position, end);
+			}
+		}
+		return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+	}
+
+	int hash(int index) {
+		return hashes[index];
+	}
+
+	int size() {
+		return size;
+	}
+
+	void trimToSize() {
+		bytes = Arrays.copyOf(bytes, start(size));
+		ends = Arrays.copyOf(ends, size);
+		hashes = Arrays.copyOf(hashes, size);
+	}
+
+	private int start(int index) {
+		return index == 0 ? 0 : ends[index - 1];
+	}
+
+	private boolean equalsAt(int index, String string) {
+		int start = start(index);
+		int end = ends[index];
+		int length = string.length();
+		if (end - start < length) {
+			return false;
+		}
+		int position = start;
+		for (int i = 0; i < length; i++) {
+			char c = string.charAt(i);
+			if (c < 0x80) {
+				if (position == end || bytes[position++] != c) {
+					return false;
+				}
+				continue;
+			}
+			int codePoint = c;
+			if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+				codePoint = Character.toCodePoint(c, string.charAt(++i));
+			}
+			int count = encodedLength(codePoint);
+			if (end - position < count || !matches(codePoint, count, position)) {
+				return false;
+			}
+			position += count;
+		}
+		return position == end;
+	}
+
+	/**
+	 * Writes the string from the given char onwards at the given offset, which must have room for three bytes per
+	 * char, and returns the offset past the last byte written.
+	 */
+	private int encode(String string, int from, int position) {
+		int length = string.length();
+		for (int i = from; i < length; i++) {
+			char c = string.charAt(i);
+			if (c < 0x80) {
+				bytes[position++] = (byte) c;
+				continue;
+			}
+			int codePoint = c;
+			if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+				codePoint = Character.toCodePoint(c, string.charAt(++i));
+			}
+			int count = encodedLength(codePoint);
+			for (int shift = 6 * (count - 1), b = 0; b < count; b++, shift -= 6) {
+				bytes[position++] = encodedByte(codePoint, count, b == 0, shift);
+			}
+		}
+		return position;
+	}
+
+	private boolean matches(int codePoint, int count, int position) {
+		for (int shift = 6 * (count - 1), b = 0; b < count; b++, shift -= 6) {
+			if (bytes[position + b] != encodedByte(codePoint, count, b == 0, shift)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String decode(int start, int from, int end) {
+		char[] chars = new char[end - start];
+		int length = 0;
+		for (int position = start; position < from; position++) {
+			chars[length++] = (char) bytes[position];
+		}
+		for (int position = from; position < end; ) {
+			int lead = bytes[position++] & 0xff;
+			if (lead < 0x80) {
+				chars[length++] = (char) lead;
+				continue;
+			}
+			int count = lead >= 0xf0 ? 4 : lead >= 0xe0 ? 3 : 2;
+			int codePoint = lead & (0x7f >> count);
+			for (int b = 1; b < count; b++) {
+				codePoint = codePoint << 6 | bytes[position++] & 0x3f;
+			}
+			length += Character.toChars(codePoint, chars, length);
+		}
+		return new String(chars, 0, length);
+	}
+
+	private static int encodedLength(int codePoint) {
+		return codePoint < 0x800 ? 2 : codePoint < 0x10000 ? 3 : 4;
+	}
+
+	private static byte encodedByte(int codePoint, int count, boolean lead, int shift) {
+		int bits = codePoint >> shift & 0x3f;
+		return (byte) (lead ? (0xf00 >> count) & 0xff | codePoint >> shift : 0x80 | bits);
+	}
+
+	private int insert(int slot, int end, int hash) {
+		if (size == ends.length) {
+			ends = Arrays.copyOf(ends, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		ends[size] = end;
+		hashes[size] = hash;
+		table[slot] = ++size;
+		if (size * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+		return size - 1;
+	}
+
+	private void ensureBytes(int start, long additional) {
+		long required = (long) start + additional;
+		checkState(required <= MAX_BYTES, "too many bytes to pack: %s", required);
+		if (required > bytes.length) {
+			bytes = Arrays.copyOf(bytes, (int) Math.min(MAX_BYTES, Math.max(required, bytes.length * 2L)));
+		}
+	}
+
+	private void rehash(int capacity) {
+		int[] rehashed = new int[capacity];
+		int mask = capacity - 1;
+		for (int i = 0; i < size; i++) {
+			int slot = KeyIndex.smear(hashes[i]) & mask;
+			while (rehashed[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			rehashed[slot] = i + 1;
+		}
+		table = rehashed;
+	}
+
+	private static boolean rangeEquals(byte[] bytes, int from, byte[] other, int otherFrom, int length) {
+		for (int i = 0; i < length; i++) {
+			if (bytes[from + i] != other[otherFrom + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
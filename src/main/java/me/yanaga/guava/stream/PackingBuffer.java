@@ -0,0 +1,92 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Accumulation container for the compact string collectors: the packed keys plus, for maps, a parallel value
+ * array. Combining copies the packed bytes of the other split without decoding them.
+ */
+final class PackingBuffer<V> {
+
+	private final PackedStrings keys = new PackedStrings();
+
+	private final boolean mapped;
+
+	private Object[] values;
+
+	PackingBuffer(boolean mapped) {
+		this.mapped = mapped;
+		this.values = mapped ? new Object[8] : null;
+	}
+
+	void add(String key) {
+		keys.add(key);
+	}
+
+	void put(String key, V value) {
+		checkNotNull(value);
+		int index = keys.add(key);
+		if (index >= 0) {
+			throw conflict(key, values[index], value);
+		}
+		store(-1 - index, value);
+	}
+
+	PackingBuffer<V> combine(PackingBuffer<V> other) {
+		for (int i = 0; i < other.keys.size(); i++) {
+			int index = keys.addFrom(other.keys, i);
+			if (mapped) {
+				if (index >= 0) {
+					throw conflict(other.keys.get(i), values[index], other.values[i]);
+				}
+				store(-1 - index, other.values[i]);
+			}
+		}
+		return this;
+	}
+
+	CompactStringSet toSet() {
+		keys.trimToSize();
+		return new CompactStringSet(keys);
+	}
+
+	<W> CompactStringMap<W> toMap() {
+		keys.trimToSize();
+		return new CompactStringMap<>(keys, Arrays.copyOf(values, keys.size()));
+	}
+
+	private void store(int index, Object value) {
+		if (index == values.length) {
+			values = Arrays.copyOf(values, index * 2);
+		}
+		values[index] = value;
+	}
+
+	private static IllegalArgumentException conflict(String key, Object value, Object value2) {
+		return new IllegalArgumentException(String.format(
+				"Multiple entries with same key: %s=%s and %s=%s", key, value, key, value2));
+	}
+
+}
@@ -0,0 +1,353 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.Maps;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Persistent hash array mapped trie. Every update returns a new version that shares all untouched nodes with the
+ * previous one, so adding or replacing an entry copies only the path from the root to its leaf: at most seven
+ * 32-way nodes, plus a collision node for keys whose hashes are fully equal. Bulk updates, such as the ones made by
+ * {@link MoreCollectors#toPersistentHashMap}, edit the nodes they have already copied in place instead of copying
+ * them again. Null keys and values are rejected, like in Guava's immutable maps.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+	private static final int BITS = 5;
+
+	private static final int MASK = (1 << BITS) - 1;
+
+	private static final int MAX_SHIFT = 32;
+
+	private static final PersistentHashMap<Object, Object> EMPTY = new PersistentHashMap<>(new Node(null, 0, new Object[0]), 0);
+
+	private final Node root;
+
+	private final int size;
+
+	private transient Set<Map.Entry<K, V>> entrySet;
+
+	private PersistentHashMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <K, V> PersistentHashMap<K, V> of() {
+		return (PersistentHashMap<K, V>) EMPTY;
+	}
+
+	public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+		if (map instanceof PersistentHashMap) {
+			@SuppressWarnings("unchecked")
+			PersistentHashMap<K, V> persistent = (PersistentHashMap<K, V>) map;
+			return persistent;
+		}
+		return PersistentHashMap.<K, V>of().withAll(map.entrySet(), null);
+	}
+
+	public PersistentHashMap<K, V> with(K key, V value) {
+		checkNotNull(key);
+		checkNotNull(value);
+		boolean[] added = new boolean[1];
+		Node newRoot = root.put(null, 0, KeyIndex.smear(key.hashCode()), key, value, added);
+		return newRoot == root ? this : new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+	}
+
+	public PersistentHashMap<K, V> without(Object key) {
+		if (!containsKey(key)) {
+			return this;
+		}
+		Node newRoot = root.remove(0, KeyIndex.smear(key.hashCode()), key);
+		return newRoot == null ? PersistentHashMap.<K, V>of() : new PersistentHashMap<>(newRoot, size - 1);
+	}
+
+	/**
+	 * Applies the entries in order; a key that is already mapped, in this map or by an earlier entry, gets the merged
+	 * value, or the new value when {@code mergeFunction} is null.
+	 */
+	PersistentHashMap<K, V> withAll(Iterable<? extends Map.Entry<? extends K, ? extends V>> entries, BinaryOperator<V> mergeFunction) {
+		Object edit = new Object();
+		Node newRoot = root;
+		int newSize = size;
+		boolean[] added = new boolean[1];
+		for (Map.Entry<? extends K, ? extends V> entry : entries) {
+			K key = checkNotNull(entry.getKey());
+			V value = checkNotNull(entry.getValue());
+			int hash = KeyIndex.smear(key.hashCode());
+			if (mergeFunction != null) {
+				@SuppressWarnings("unchecked")
+				V oldValue = (V) newRoot.get(0, hash, key);
+				if (oldValue != null) {
+					value = checkNotNull(mergeFunction.apply(oldValue, value));
+				}
+			}
+			added[0] = false;
+			newRoot = newRoot.put(edit, 0, hash, key, value, added);
+			if (added[0]) {
+				newSize++;
+			}
+		}
+		return newRoot == root ? this : new PersistentHashMap<>(newRoot, newSize);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		return key == null ? null : (V) root.get(0, KeyIndex.smear(key.hashCode()), key);
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> result = entrySet;
+		if (result == null) {
+			result = entrySet = new AbstractSet<Map.Entry<K, V>>() {
+				@Override
+				public Iterator<Map.Entry<K, V>> iterator() {
+					return new EntryIterator();
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
+		return result;
+	}
+
+	/**
+	 * A trie node. Below {@link #MAX_SHIFT} the bitmap tells which of the 32 branches are present and the array holds
+	 * a key and value pair per branch, with a null key and a child node in place of the value for a subtrie. At
+	 * {@code MAX_SHIFT} and beyond the node is a collision node holding every pair in a flat array.
+	 */
+	private static final class Node {
+
+		private final Object edit;
+
+		private int bitmap;
+
+		private Object[] array;
+
+		Node(Object edit, int bitmap, Object[] array) {
+			this.edit = edit;
+			this.bitmap = bitmap;
+			this.array = array;
+		}
+
+		Object get(int shift, int hash, Object key) {
+			if (shift >= MAX_SHIFT) {
+				for (int i = 0; i < array.length; i += 2) {
+					if (key.equals(array[i])) {
+						return array[i + 1];
+					}
+				}
+				return null;
+			}
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0) {
+				return null;
+			}
+			int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+			Object k = array[index];
+			if (k == null) {
+				return ((Node) array[index + 1]).get(shift + BITS, hash, key);
+			}
+			return key.equals(k) ? array[index + 1] : null;
+		}
+
+		Node put(Object edit, int shift, int hash, Object key, Object value, boolean[] added) {
+			if (shift >= MAX_SHIFT) {
+				for (int i = 0; i < array.length; i += 2) {
+					if (key.equals(array[i])) {
+						return array[i + 1] == value ? this : set(edit, i + 1, value);
+					}
+				}
+				added[0] = true;
+				return insert(edit, array.length, bitmap, key, value);
+			}
+			int bit = 1 << ((hash >>> shift) & MASK);
+			int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+			if ((bitmap & bit) == 0) {
+				added[0] = true;
+				return insert(edit, index, bitmap | bit, key, value);
+			}
+			Object k = array[index];
+			Object v = array[index + 1];
+			if (k == null) {
+				Node child = (Node) v;
+				Node newChild = child.put(edit, shift + BITS, hash, key, value, added);
+				return newChild == child ? this : set(edit, index + 1, newChild);
+			}
+			if (key.equals(k)) {
+				return v == value ? this : set(edit, index + 1, value);
+			}
+			added[0] = true;
+			Node child = new Node(edit, 0, new Object[0])
+					.put(edit, shift + BITS, KeyIndex.smear(k.hashCode()), k, v, new boolean[1])
+					.put(edit, shift + BITS, hash, key, value, new boolean[1]);
+			Node node = set(edit, index, null);
+			node.array[index + 1] = child;
+			return node;
+		}
+
+		Node remove(int shift, int hash, Object key) {
+			if (shift >= MAX_SHIFT) {
+				for (int i = 0; i < array.length; i += 2) {
+					if (key.equals(array[i])) {
+						return array.length == 2 ? null : new Node(null, 0, delete(array, i));
+					}
+				}
+				return this;
+			}
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((bitmap & bit) == 0) {
+				return this;
+			}
+			int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+			Object k = array[index];
+			if (k == null) {
+				Node child = (Node) array[index + 1];
+				Node newChild = child.remove(shift + BITS, hash, key);
+				if (newChild == child) {
+					return this;
+				}
+				if (newChild != null) {
+					Object[] copy = array.clone();
+					copy[index + 1] = newChild;
+					return new Node(null, bitmap, copy);
+				}
+			} else if (!key.equals(k)) {
+				return this;
+			}
+			return bitmap == bit ? null : new Node(null, bitmap ^ bit, delete(array, index));
+		}
+
+		private Node set(Object edit, int index, Object value) {
+			if (edit != null && edit == this.edit) {
+				array[index] = value;
+				return this;
+			}
+			Object[] copy = array.clone();
+			copy[index] = value;
+			return new Node(edit, bitmap, copy);
+		}
+
+		private Node insert(Object edit, int index, int newBitmap, Object key, Object value) {
+			Object[] copy = new Object[array.length + 2];
+			System.arraycopy(array, 0, copy, 0, index);
+			copy[index] = key;
+			copy[index + 1] = value;
+			System.arraycopy(array, index, copy, index + 2, array.length - index);
+			if (edit != null && edit == this.edit) {
+				array = copy;
+				bitmap = newBitmap;
+				return this;
+			}
+			return new Node(edit, newBitmap, copy);
+		}
+
+		private static Object[] delete(Object[] array, int index) {
+			Object[] copy = Arrays.copyOf(array, array.length - 2);
+			System.arraycopy(array, index + 2, copy, index, array.length - index - 2);
+			return copy;
+		}
+
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+		private final Node[] nodes = new Node[MAX_SHIFT / BITS + 2];
+
+		private final int[] positions = new int[nodes.length];
+
+		private int depth;
+
+		private Map.Entry<K, V> next;
+
+		EntryIterator() {
+			nodes[0] = root;
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			Map.Entry<K, V> result = next;
+			advance();
+			return result;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void advance() {
+			next = null;
+			while (depth >= 0) {
+				Node node = nodes[depth];
+				int position = positions[depth];
+				if (position >= node.array.length) {
+					depth--;
+					continue;
+				}
+				positions[depth] = position + 2;
+				Object key = node.array[position];
+				Object value = node.array[position + 1];
+				if (key == null) {
+					depth++;
+					nodes[depth] = (Node) value;
+					positions[depth] = 0;
+				} else {
+					next = Maps.immutableEntry((K) key, (V) value);
+					return;
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,123 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+/**
+ * Logic shared by {@link ImmutableIntArray}, {@link ImmutableLongArray} and {@link ImmutableDoubleArray}, which only
+ * add what depends on the element type: length, index checks and equality over the wrapped array of type {@code A},
+ * the base of their list views, and the growth of their builders.
+ */
+abstract class PrimitiveArray<A> {
+
+	final A array;
+
+	private final int length;
+
+	PrimitiveArray(A array) {
+		this.array = array;
+		this.length = Array.getLength(array);
+	}
+
+	public int length() {
+		return length;
+	}
+
+	public boolean isEmpty() {
+		return length == 0;
+	}
+
+	final int checkIndex(int index) {
+		return checkElementIndex(index, length);
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object == this || (object != null && object.getClass() == getClass()
+				&& Objects.deepEquals(array, ((PrimitiveArray<?>) object).array));
+	}
+
+	@Override
+	public abstract int hashCode();
+
+	@Override
+	public abstract String toString();
+
+	abstract class ListView<E> extends AbstractList<E> implements RandomAccess {
+
+		@Override
+		public int size() {
+			return length;
+		}
+
+		@Override
+		public boolean contains(Object target) {
+			return indexOf(target) >= 0;
+		}
+
+	}
+
+	abstract static class AbstractBuilder<A> {
+
+		static final int DEFAULT_CAPACITY = 10;
+
+		A contents;
+
+		int count;
+
+		private int capacity;
+
+		AbstractBuilder(A contents) {
+			this.contents = contents;
+			this.capacity = Array.getLength(contents);
+		}
+
+		abstract A copyOf(A array, int length);
+
+		final void ensureCapacity(int additional) {
+			if (count + additional > capacity) {
+				capacity = Math.max(count + additional, capacity + (capacity >> 1) + 1);
+				contents = copyOf(contents, capacity);
+			}
+		}
+
+		final void append(A values, int length) {
+			ensureCapacity(length);
+			System.arraycopy(values, 0, contents, count, length);
+			count += length;
+		}
+
+		/**
+		 * Returns the contents trimmed to the count. A full array is handed over as is: any further add() reallocates
+		 * before writing.
+		 */
+		final A trimmed() {
+			return count == capacity ? contents : copyOf(contents, count);
+		}
+
+	}
+
+}
@@ -0,0 +1,226 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.function.Function;
+
+/**
+ * Stable radix sorts for elements whose keys are all {@code Integer}s, all {@code Long}s or all strings of chars
+ * below 256, in natural order. The keys are unboxed into a primitive or {@code String} array that is permuted
+ * together with the elements: an LSD sort a byte at a time for numbers, skipping the bytes all keys share, and an
+ * MSD sort a char at a time for strings. Neither calls a comparator, and both keep equal keys in their original
+ * order, like the merge sort of {@link Arrays#sort(Object[], java.util.Comparator)}.
+ */
+final class RadixSort {
+
+	private static final int MIN_SIZE = 256;
+
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	private RadixSort() {
+	}
+
+	/**
+	 * Sorts the first {@code size} elements by their keys and returns true, or returns false without touching the
+	 * elements when they are too few or their keys are not all of one supported type.
+	 */
+	static <E> boolean sort(Object[] elements, int size, Function<? super E, ?> key) {
+		if (size < MIN_SIZE) {
+			return false;
+		}
+		@SuppressWarnings("unchecked")
+		Object first = key.apply((E) elements[0]);
+		if (first instanceof Integer) {
+			int[] keys = new int[size];
+			for (int i = 0; i < size; i++) {
+				@SuppressWarnings("unchecked")
+				Object k = key.apply((E) elements[i]);
+				if (!(k instanceof Integer)) {
+					return false;
+				}
+				keys[i] = (Integer) k ^ Integer.MIN_VALUE;
+			}
+			sortInts(keys, elements, size);
+			return true;
+		}
+		if (first instanceof Long) {
+			long[] keys = new long[size];
+			for (int i = 0; i < size; i++) {
+				@SuppressWarnings("unchecked")
+				Object k = key.apply((E) elements[i]);
+				if (!(k instanceof Long)) {
+					return false;
+				}
+				keys[i] = (Long) k ^ Long.MIN_VALUE;
+			}
+			sortLongs(keys, elements, size);
+			return true;
+		}
+		if (first instanceof String) {
+			String[] keys = new String[size];
+			for (int i = 0; i < size; i++) {
+				@SuppressWarnings("unchecked")
+				Object k = key.apply((E) elements[i]);
+				if (!(k instanceof String) || !isLatin1((String) k)) {
+					return false;
+				}
+				keys[i] = (String) k;
+			}
+			sortStrings(keys, elements, size);
+			return true;
+		}
+		return false;
+	}
+
+	private static void sortInts(int[] keys, Object[] elements, int size) {
+		int[] keyBuffer = new int[size];
+		Object[] elementBuffer = new Object[size];
+		int[] counts = new int[257];
+		for (int shift = 0; shift < Integer.SIZE; shift += 8) {
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < size; i++) {
+				counts[((keys[i] >>> shift) & 0xff) + 1]++;
+			}
+			if (counts[((keys[0] >>> shift) & 0xff) + 1] == size) {
+				continue;
+			}
+			for (int i = 0; i < 256; i++) {
+				counts[i + 1] += counts[i];
+			}
+			for (int i = 0; i < size; i++) {
+				int bucket = counts[(keys[i] >>> shift) & 0xff]++;
+				keyBuffer[bucket] = keys[i];
+				elementBuffer[bucket] = elements[i];
+			}
+			System.arraycopy(keyBuffer, 0, keys, 0, size);
+			System.arraycopy(elementBuffer, 0, elements, 0, size);
+		}
+	}
+
+	private static void sortLongs(long[] keys, Object[] elements, int size) {
+		long[] keyBuffer = new long[size];
+		Object[] elementBuffer = new Object[size];
+		int[] counts = new int[257];
+		for (int shift = 0; shift < Long.SIZE; shift += 8) {
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < size; i++) {
+				counts[(int) ((keys[i] >>> shift) & 0xff) + 1]++;
+			}
+			if (counts[(int) ((keys[0] >>> shift) & 0xff) + 1] == size) {
+				continue;
+			}
+			for (int i = 0; i < 256; i++) {
+				counts[i + 1] += counts[i];
+			}
+			for (int i = 0; i < size; i++) {
+				int bucket = counts[(int) ((keys[i] >>> shift) & 0xff)]++;
+				keyBuffer[bucket] = keys[i];
+				elementBuffer[bucket] = elements[i];
+			}
+			System.arraycopy(keyBuffer, 0, keys, 0, size);
+			System.arraycopy(elementBuffer, 0, elements, 0, size);
+		}
+	}
+
+	/**
+	 * MSD sort with an explicit stack, so long common prefixes cannot overflow the call stack. Bucket 0 holds the
+	 * strings that end at the current depth, which sort before any longer string sharing their prefix.
+	 */
+	private static void sortStrings(String[] keys, Object[] elements, int size) {
+		String[] keyBuffer = new String[size];
+		Object[] elementBuffer = new Object[size];
+		Deque<int[]> ranges = new ArrayDeque<>();
+		ranges.push(new int[]{0, size, 0});
+		while (!ranges.isEmpty()) {
+			int[] range = ranges.pop();
+			int from = range[0];
+			int to = range[1];
+			int depth = range[2];
+			if (to - from <= INSERTION_SORT_THRESHOLD) {
+				insertionSort(keys, elements, from, to, depth);
+				continue;
+			}
+			int[] counts = new int[258];
+			for (int i = from; i < to; i++) {
+				counts[charAt(keys[i], depth) + 2]++;
+			}
+			for (int i = 0; i < 257; i++) {
+				counts[i + 1] += counts[i];
+			}
+			int[] starts = counts.clone();
+			for (int i = from; i < to; i++) {
+				int bucket = from + counts[charAt(keys[i], depth) + 1]++;
+				keyBuffer[bucket] = keys[i];
+				elementBuffer[bucket] = elements[i];
+			}
+			System.arraycopy(keyBuffer, from, keys, from, to - from);
+			System.arraycopy(elementBuffer, from, elements, from, to - from);
+			for (int c = 1; c < 257; c++) {
+				if (starts[c + 1] - starts[c] > 1) {
+					ranges.push(new int[]{from + starts[c], from + starts[c + 1], depth + 1});
+				}
+			}
+		}
+	}
+
+	private static void insertionSort(String[] keys, Object[] elements, int from, int to, int depth) {
+		for (int i = from + 1; i < to; i++) {
+			String key = keys[i];
+			Object element = elements[i];
+			int j = i - 1;
+			while (j >= from && compareFrom(keys[j], key, depth) > 0) {
+				keys[j + 1] = keys[j];
+				elements[j + 1] = elements[j];
+				j--;
+			}
+			keys[j + 1] = key;
+			elements[j + 1] = element;
+		}
+	}
+
+	private static int compareFrom(String string, String string2, int depth) {
+		int length = Math.min(string.length(), string2.length());
+		for (int i = depth; i < length; i++) {
+			int difference = string.charAt(i) - string2.charAt(i);
+			if (difference != 0) {
+				return difference;
+			}
+		}
+		return string.length() - string2.length();
+	}
+
+	private static int charAt(String string, int depth) {
+		return depth < string.length() ? string.charAt(depth) : -1;
+	}
+
+	private static boolean isLatin1(String string) {
+		for (int i = 0; i < string.length(); i++) {
+			if (string.charAt(i) >= 256) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
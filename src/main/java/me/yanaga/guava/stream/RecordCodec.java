@@ -0,0 +1,43 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-width binary encoding of the elements collected by {@link MoreCollectors#toImmutableMappedList(RecordCodec)}.
+ * Every record occupies exactly {@link #recordSize()} bytes.
+ */
+public interface RecordCodec<T> {
+
+	int recordSize();
+
+	/**
+	 * Writes {@code value} at the current position of {@code target} using relative puts.
+	 */
+	void encode(T value, ByteBuffer target);
+
+	/**
+	 * Reads a value from the current position of {@code source} using relative gets.
+	 */
+	T decode(ByteBuffer source);
+
+}
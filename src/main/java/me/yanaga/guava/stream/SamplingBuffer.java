@@ -0,0 +1,161 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+import java.util.function.ToDoubleFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Accumulation container for the sampling collectors. Every element draws a random key and the reservoir keeps the
+ * elements holding the n smallest keys in a max-heap, so memory stays in O(n) and a rejected element costs one random
+ * number and one comparison. Uniform samples use the uniform variate itself as the key; weighted samples use an
+ * exponential variate with the element weight as its rate (Efraimidis-Spirakis). Since keys are independent of the
+ * order elements arrive in, merging two reservoirs is just keeping the n smallest keys of both, which yields the same
+ * distribution as sampling the concatenated stream.
+ */
+final class SamplingBuffer<E> extends AbstractCollection<E> {
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private static final double[] NO_KEYS = new double[0];
+
+	private final int n;
+
+	private final SplittableRandom random;
+
+	private final ToDoubleFunction<? super E> weigher;
+
+	private double[] keys = NO_KEYS;
+
+	private Object[] elements = EMPTY;
+
+	private int size;
+
+	/**
+	 * Creates a reservoir of at most {@code n} elements, uniform when {@code weigher} is {@code null}.
+	 */
+	SamplingBuffer(int n, SplittableRandom random, ToDoubleFunction<? super E> weigher) {
+		this.n = n;
+		this.random = random;
+		this.weigher = weigher;
+	}
+
+	@Override
+	public boolean add(E e) {
+		double u = random.nextDouble();
+		double key;
+		if (weigher == null) {
+			key = u;
+		} else {
+			double weight = weigher.applyAsDouble(e);
+			checkArgument(weight >= 0.0 && weight < Double.POSITIVE_INFINITY,
+					"weight must be finite and non-negative but was: %s", weight);
+			if (weight == 0.0) {
+				return false;
+			}
+			key = -Math.log1p(-u) / weight;
+		}
+		return offer(key, e);
+	}
+
+	@SuppressWarnings("unchecked")
+	SamplingBuffer<E> combine(SamplingBuffer<E> other) {
+		for (int i = 0; i < other.size; i++) {
+			offer(other.keys[i], (E) other.elements[i]);
+		}
+		return this;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the sampled elements in no particular order, handing the array over when it is exactly sized.
+	 */
+	@Override
+	public Object[] toArray() {
+		return size == elements.length ? elements : Arrays.copyOf(elements, size);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		@SuppressWarnings("unchecked")
+		Iterator<E> iterator = (Iterator<E>) Arrays.asList(elements).subList(0, size).iterator();
+		return iterator;
+	}
+
+	private boolean offer(double key, E e) {
+		if (size < n) {
+			if (size == elements.length) {
+				int capacity = (int) Math.min(n, Math.max(8L, size + (size >> 1)));
+				keys = Arrays.copyOf(keys, capacity);
+				elements = Arrays.copyOf(elements, capacity);
+			}
+			siftUp(size++, key, e);
+			return true;
+		}
+		if (n == 0 || key >= keys[0]) {
+			return false;
+		}
+		siftDown(0, key, e);
+		return true;
+	}
+
+	private void siftUp(int index, double key, Object e) {
+		while (index > 0) {
+			int parent = (index - 1) >>> 1;
+			if (keys[parent] >= key) {
+				break;
+			}
+			keys[index] = keys[parent];
+			elements[index] = elements[parent];
+			index = parent;
+		}
+		keys[index] = key;
+		elements[index] = e;
+	}
+
+	private void siftDown(int index, double key, Object e) {
+		int half = size >>> 1;
+		while (index < half) {
+			int child = 2 * index + 1;
+			if (child + 1 < size && keys[child + 1] > keys[child]) {
+				child++;
+			}
+			if (key >= keys[child]) {
+				break;
+			}
+			keys[index] = keys[child];
+			elements[index] = elements[child];
+			index = child;
+		}
+		keys[index] = key;
+		elements[index] = e;
+	}
+
+}
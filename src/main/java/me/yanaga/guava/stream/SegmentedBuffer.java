@@ -0,0 +1,173 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Ordered accumulation container made of linked array segments. Appending never copies, combining two buffers only
+ * links their segments, and {@link #toArray()} flattens everything into a single exactly sized array, which Guava
+ * adopts as the backing array of the {@code ImmutableList} without copying it again. When the whole content sits in
+ * one full segment, as it does when the expected size was right, that segment is handed over as is. Without an
+ * expected size the first segment only holds a few elements, so tiny streams do not pay for a default-sized array.
+ */
+final class SegmentedBuffer<E> extends AbstractCollection<E> {
+
+	private static final int SMALL_SEGMENT_CAPACITY = 4;
+
+	private static final int MIN_SEGMENT_CAPACITY = 16;
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private static final int MAX_SEGMENT_CAPACITY = 1 << 20;
+
+	private Segment head;
+
+	private Segment tail;
+
+	private int size;
+
+	private final int initialCapacity;
+
+	SegmentedBuffer() {
+		this(SMALL_SEGMENT_CAPACITY);
+	}
+
+	SegmentedBuffer(int initialCapacity) {
+		this.initialCapacity = Math.max(initialCapacity, 1);
+	}
+
+	@Override
+	public boolean add(E e) {
+		if (tail == null) {
+			addSegment(initialCapacity);
+		} else if (tail.size == tail.elements.length) {
+			addSegment(Math.min(Math.max(MIN_SEGMENT_CAPACITY, size), MAX_SEGMENT_CAPACITY));
+		}
+		tail.elements[tail.size++] = e;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Appends an empty slot and returns the segment holding it, at index {@link #tailSize()} - 1. Segments never move,
+	 * so the slot can be filled later, even from another thread, as long as that happens before it is read.
+	 */
+	Object[] addSlot() {
+		add(null);
+		return tail.elements;
+	}
+
+	int tailSize() {
+		return tail.size;
+	}
+
+	SegmentedBuffer<E> combine(SegmentedBuffer<E> other) {
+		if (other.head == null) {
+			return this;
+		}
+		if (head == null) {
+			return other;
+		}
+		tail.next = other.head;
+		tail = other.tail;
+		size += other.size;
+		return this;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Object[] toArray() {
+		if (head == null) {
+			return EMPTY;
+		}
+		if (head == tail && head.size == head.elements.length) {
+			return head.elements;
+		}
+		Object[] array = new Object[size];
+		int offset = 0;
+		for (Segment segment = head; segment != null; segment = segment.next) {
+			System.arraycopy(segment.elements, 0, array, offset, segment.size);
+			offset += segment.size;
+		}
+		return array;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+
+			private Segment segment = head;
+
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				while (segment != null && index == segment.size) {
+					segment = segment.next;
+					index = 0;
+				}
+				return segment != null;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public E next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return (E) segment.elements[index++];
+			}
+
+		};
+	}
+
+	private void addSegment(int capacity) {
+		Segment segment = new Segment(capacity);
+		if (tail == null) {
+			head = segment;
+		} else {
+			tail.next = segment;
+		}
+		tail = segment;
+	}
+
+	private static final class Segment {
+
+		private final Object[] elements;
+
+		private int size;
+
+		private Segment next;
+
+		private Segment(int capacity) {
+			this.elements = new Object[capacity];
+		}
+
+	}
+
+}
@@ -0,0 +1,133 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Accumulation container for the sorted collectors. Elements are gathered into a flat array and only sorted when
+ * the run is combined with the run of another split, or at finish time. Combining two sorted runs is a linear merge,
+ * so a parallel stream sorts its leaves independently and never sorts the same elements twice. The Guava factories
+ * fed from {@link #toArray()} still run their own sort, which is a single linear pass over an already sorted array.
+ */
+final class SortingBuffer<E> extends AbstractCollection<E> {
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private final Comparator<? super E> comparator;
+
+	private final Function<? super E, ?> radixKey;
+
+	private Object[] elements = EMPTY;
+
+	private int size;
+
+	private boolean sorted = true;
+
+	SortingBuffer(Comparator<? super E> comparator) {
+		this(comparator, null);
+	}
+
+	/**
+	 * Creates a buffer that tries {@link RadixSort} on the keys extracted by {@code radixKey} before falling back to
+	 * the comparator, which must then be the natural order of those keys.
+	 */
+	SortingBuffer(Comparator<? super E> comparator, Function<? super E, ?> radixKey) {
+		this.comparator = comparator;
+		this.radixKey = radixKey;
+	}
+
+	@Override
+	public boolean add(E e) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(8, size + (size >> 1)));
+		}
+		elements[size++] = e;
+		sorted = size == 1;
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	SortingBuffer<E> combine(SortingBuffer<E> other) {
+		if (other.size == 0) {
+			return this;
+		}
+		if (size == 0) {
+			return other;
+		}
+		sort();
+		other.sort();
+		Object[] merged = new Object[size + other.size];
+		int i = 0;
+		int j = 0;
+		int k = 0;
+		while (i < size && j < other.size) {
+			if (comparator.compare((E) other.elements[j], (E) elements[i]) < 0) {
+				merged[k++] = other.elements[j++];
+			} else {
+				merged[k++] = elements[i++];
+			}
+		}
+		System.arraycopy(elements, i, merged, k, size - i);
+		System.arraycopy(other.elements, j, merged, k + size - i, other.size - j);
+		elements = merged;
+		size = merged.length;
+		return this;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the elements in sorted order. The array is handed over rather than copied when it is already exactly
+	 * sized, as it always is after a merge.
+	 */
+	@Override
+	public Object[] toArray() {
+		sort();
+		return size == elements.length ? elements : Arrays.copyOf(elements, size);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		sort();
+		@SuppressWarnings("unchecked")
+		Iterator<E> iterator = (Iterator<E>) Arrays.asList(elements).subList(0, size).iterator();
+		return iterator;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void sort() {
+		if (!sorted) {
+			if (radixKey == null || !RadixSort.sort(elements, size, radixKey)) {
+				Arrays.sort((E[]) elements, 0, size, comparator);
+			}
+			sorted = true;
+		}
+	}
+
+}
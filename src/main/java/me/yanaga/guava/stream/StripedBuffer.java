@@ -0,0 +1,328 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableSet;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Accumulation container for the {@code CONCURRENT} collectors. Elements are appended to one of several stripes,
+ * chosen by the calling thread, so worker threads rarely share a lock. Stripes are only read once the stream is
+ * done, which is when the Guava builder is filled in a single pass. The first thread to add gets a stripe of its own
+ * and the array of stripes is only allocated once another thread shows up, so a sequential stream never pays for it.
+ *
+ * <p>The view returned by {@link #asCollection()} knows its exact size up front, so Guava factories fed from it
+ * allocate their arrays and hash tables once.
+ *
+ * <p>Without an expected size the owner's stripe starts with room for a few elements only, and a set that fits in it
+ * is built straight from its slots with the {@code of} factories of Guava, skipping the copy into a collection.
+ */
+final class StripedBuffer {
+
+	static final int STRIPES = stripeCount(Runtime.getRuntime().availableProcessors());
+
+	private static final int INITIAL_CAPACITY = 8;
+
+	private static final int SMALL_CAPACITY = 4;
+
+	private static final int HOME = -1;
+
+	private static final AtomicReferenceFieldUpdater<StripedBuffer, Thread> OWNER =
+			AtomicReferenceFieldUpdater.newUpdater(StripedBuffer.class, Thread.class, "owner");
+
+	private final int width;
+
+	private final int expectedSize;
+
+	private volatile Thread owner;
+
+	private volatile Stripe home;
+
+	private volatile AtomicReferenceArray<Stripe> stripes;
+
+	private StripedBuffer next;
+
+	StripedBuffer(int width) {
+		this(width, INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize the number of elements the first thread to add makes room for, or zero for a small stripe
+	 */
+	StripedBuffer(int width, int expectedSize) {
+		this.width = width;
+		this.expectedSize = expectedSize > 0 ? expectedSize : SMALL_CAPACITY;
+	}
+
+	void add(Object first) {
+		Stripe stripe = stripe();
+		synchronized (stripe) {
+			stripe.ensureCapacity(1);
+			stripe.slots[stripe.size++] = first;
+		}
+	}
+
+	void add(Object first, Object second) {
+		Stripe stripe = stripe();
+		synchronized (stripe) {
+			stripe.ensureCapacity(2);
+			stripe.slots[stripe.size++] = first;
+			stripe.slots[stripe.size++] = second;
+		}
+	}
+
+	StripedBuffer combine(StripedBuffer other) {
+		StripedBuffer last = this;
+		while (last.next != null) {
+			last = last.next;
+		}
+		last.next = other;
+		return this;
+	}
+
+	int size() {
+		int slots = 0;
+		for (StripedBuffer buffer = this; buffer != null; buffer = buffer.next) {
+			for (int i = HOME; i < STRIPES; i++) {
+				Stripe stripe = buffer.stripeAt(i);
+				if (stripe != null) {
+					synchronized (stripe) {
+						slots += stripe.size;
+					}
+				}
+			}
+		}
+		return slots / width;
+	}
+
+	@SuppressWarnings("unchecked")
+	<E> void forEach(Consumer<? super E> consumer) {
+		for (StripedBuffer buffer = this; buffer != null; buffer = buffer.next) {
+			for (int i = HOME; i < STRIPES; i++) {
+				Stripe stripe = buffer.stripeAt(i);
+				if (stripe != null) {
+					synchronized (stripe) {
+						for (int j = 0; j < stripe.size; j += width) {
+							consumer.accept((E) stripe.slots[j]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	<A, B> void forEach(BiConsumer<? super A, ? super B> consumer) {
+		for (StripedBuffer buffer = this; buffer != null; buffer = buffer.next) {
+			for (int i = HOME; i < STRIPES; i++) {
+				Stripe stripe = buffer.stripeAt(i);
+				if (stripe != null) {
+					synchronized (stripe) {
+						for (int j = 0; j < stripe.size; j += width) {
+							consumer.accept((A) stripe.slots[j], (B) stripe.slots[j + 1]);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	Object[] toArray() {
+		Object[] slots = new Object[size() * width];
+		int offset = 0;
+		for (StripedBuffer buffer = this; buffer != null; buffer = buffer.next) {
+			for (int i = HOME; i < STRIPES; i++) {
+				Stripe stripe = buffer.stripeAt(i);
+				if (stripe != null) {
+					synchronized (stripe) {
+						System.arraycopy(stripe.slots, 0, slots, offset, stripe.size);
+						offset += stripe.size;
+					}
+				}
+			}
+		}
+		return slots;
+	}
+
+	/**
+	 * Builds a set of the elements of a width-1 buffer, directly from the owner's stripe when it holds all of them and
+	 * they are few.
+	 */
+	@SuppressWarnings("unchecked")
+	<E> ImmutableSet<E> toImmutableSet() {
+		Stripe stripe = home;
+		if (next == null && stripes == null && (stripe == null || stripe.size <= SMALL_CAPACITY)) {
+			if (stripe == null) {
+				return ImmutableSet.of();
+			}
+			Object[] slots = stripe.slots;
+			switch (stripe.size) {
+				case 0:
+					return ImmutableSet.of();
+				case 1:
+					return ImmutableSet.of((E) slots[0]);
+				case 2:
+					return ImmutableSet.of((E) slots[0], (E) slots[1]);
+				case 3:
+					return ImmutableSet.of((E) slots[0], (E) slots[1], (E) slots[2]);
+				default:
+					return ImmutableSet.of((E) slots[0], (E) slots[1], (E) slots[2], (E) slots[3]);
+			}
+		}
+		return ImmutableSet.copyOf(this.<E>asCollection());
+	}
+
+	/**
+	 * Views the elements of a width-1 buffer; wider buffers interleave keys and values in their slots.
+	 */
+	<E> Collection<E> asCollection() {
+		checkState(width == 1, "a buffer of width %s is not a collection", width);
+		Object[] elements = toArray();
+		return new AbstractCollection<E>() {
+			@Override
+			public int size() {
+				return elements.length;
+			}
+
+			@Override
+			public Object[] toArray() {
+				return elements;
+			}
+
+			@Override
+			public Iterator<E> iterator() {
+				return new SlotIterator<E>(elements) {
+					@SuppressWarnings("unchecked")
+					@Override
+					E element(int index) {
+						return (E) elements[index];
+					}
+				};
+			}
+		};
+	}
+
+	static int stripeIndex() {
+		return (int) Thread.currentThread().getId() & (STRIPES - 1);
+	}
+
+	private Stripe stripe() {
+		Thread current = Thread.currentThread();
+		if (owner == current) {
+			return home;
+		}
+		if (owner == null && OWNER.compareAndSet(this, null, current)) {
+			home = new Stripe(width * expectedSize);
+			return home;
+		}
+		AtomicReferenceArray<Stripe> stripes = this.stripes;
+		if (stripes == null) {
+			synchronized (this) {
+				if (this.stripes == null) {
+					this.stripes = new AtomicReferenceArray<>(STRIPES);
+				}
+				stripes = this.stripes;
+			}
+		}
+		int index = stripeIndex();
+		Stripe stripe = stripes.get(index);
+		if (stripe == null) {
+			stripes.compareAndSet(index, null, new Stripe(width * INITIAL_CAPACITY));
+			stripe = stripes.get(index);
+		}
+		return stripe;
+	}
+
+	private Stripe stripeAt(int index) {
+		if (index == HOME) {
+			return home;
+		}
+		AtomicReferenceArray<Stripe> stripes = this.stripes;
+		return stripes == null ? null : stripes.get(index);
+	}
+
+	private static int stripeCount(int processors) {
+		int count = 1;
+		while (count < processors * 2) {
+			count <<= 1;
+		}
+		return count;
+	}
+
+	private abstract class SlotIterator<E> implements Iterator<E> {
+
+		private final Object[] slots;
+
+		private int index;
+
+		private SlotIterator(Object[] slots) {
+			this.slots = slots;
+		}
+
+		abstract E element(int index);
+
+		@Override
+		public boolean hasNext() {
+			return index < slots.length;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			E element = element(index);
+			index += width;
+			return element;
+		}
+
+	}
+
+	private static final class Stripe {
+
+		private Object[] slots;
+
+		private int size;
+
+		private Stripe(int capacity) {
+			this.slots = new Object[capacity];
+		}
+
+		private void ensureCapacity(int additional) {
+			if (size + additional > slots.length) {
+				slots = Arrays.copyOf(slots, Math.max(size + additional, slots.length * 2));
+			}
+		}
+
+	}
+
+}
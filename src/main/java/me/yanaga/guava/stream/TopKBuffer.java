@@ -0,0 +1,141 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+/**
+ * Accumulation container for the top-K collectors. Candidates are appended to an array of at most twice the bound;
+ * when it fills up the array is sorted, truncated to the K best elements and the K-th element becomes the threshold
+ * that later candidates have to beat. Memory stays in O(K) and rejected elements cost a single comparison. Sorting
+ * is stable and ties with the threshold are rejected, so the earliest of equal elements are kept.
+ */
+final class TopKBuffer<E> extends AbstractCollection<E> {
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private final int k;
+
+	private final int capacity;
+
+	private final Comparator<? super E> comparator;
+
+	private final boolean distinct;
+
+	private Object[] elements = EMPTY;
+
+	private int size;
+
+	private E threshold;
+
+	private boolean compacted = true;
+
+	TopKBuffer(int k, Comparator<? super E> comparator, boolean distinct) {
+		this.k = k;
+		this.capacity = (int) Math.min(2L * k, Integer.MAX_VALUE - 8);
+		this.comparator = comparator;
+		this.distinct = distinct;
+	}
+
+	@Override
+	public boolean add(E e) {
+		if (!accepts(e)) {
+			return false;
+		}
+		if (size == elements.length) {
+			if (size < capacity) {
+				elements = Arrays.copyOf(elements, (int) Math.min(capacity, Math.max(8L, size + (size >> 1))));
+			} else {
+				compact();
+				if (!accepts(e)) {
+					return false;
+				}
+			}
+		}
+		elements[size++] = e;
+		compacted = false;
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	TopKBuffer<E> combine(TopKBuffer<E> other) {
+		other.compact();
+		for (int i = 0; i < other.size; i++) {
+			add((E) other.elements[i]);
+		}
+		return this;
+	}
+
+	@Override
+	public int size() {
+		compact();
+		return size;
+	}
+
+	/**
+	 * Returns the K best elements in comparator order, handing the array over when it is exactly sized.
+	 */
+	@Override
+	public Object[] toArray() {
+		compact();
+		return size == elements.length ? elements : Arrays.copyOf(elements, size);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		compact();
+		@SuppressWarnings("unchecked")
+		Iterator<E> iterator = (Iterator<E>) Arrays.asList(elements).subList(0, size).iterator();
+		return iterator;
+	}
+
+	private boolean accepts(E e) {
+		return k > 0 && (threshold == null || comparator.compare(e, threshold) < 0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void compact() {
+		if (compacted) {
+			return;
+		}
+		Arrays.sort((E[]) elements, 0, size, comparator);
+		int kept = size;
+		if (distinct) {
+			kept = size == 0 ? 0 : 1;
+			for (int i = 1; i < size; i++) {
+				if (comparator.compare((E) elements[kept - 1], (E) elements[i]) != 0) {
+					elements[kept++] = elements[i];
+				}
+			}
+		}
+		kept = Math.min(kept, k);
+		Arrays.fill(elements, kept, size, null);
+		size = kept;
+		if (size == k) {
+			threshold = (E) elements[k - 1];
+		}
+		compacted = true;
+	}
+
+}
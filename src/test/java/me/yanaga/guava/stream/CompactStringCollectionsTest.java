@@ -0,0 +1,92 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactStringCollectionsTest {
+
+	@Test
+	public void testSet() throws Exception {
+		CompactStringSet set = Stream.of("BR", "US", "ação", "BR", "", "日本")
+				.collect(MoreCollectors.toCompactStringSet());
+		assertThat(set).containsExactly("BR", "US", "ação", "", "日本");
+		assertThat(set.contains("ação")).isTrue();
+		assertThat(set.contains("acao")).isFalse();
+		assertThat(set.contains("B")).isFalse();
+		assertThat(set.contains(1)).isFalse();
+		assertThat(set).isEqualTo(ImmutableSet.of("BR", "US", "ação", "", "日本"));
+		assertThat(set.hashCode()).isEqualTo(ImmutableSet.of("BR", "US", "ação", "", "日本").hashCode());
+	}
+
+	@Test
+	public void testSetKeepsLoneSurrogates() throws Exception {
+		String high = "a\uD800";
+		String low = "\uDC00b";
+		String reversed = "\uDC00\uD800";
+		String pair = "𐀀";
+		CompactStringSet set = Stream.of(high, low, reversed, pair, "a?", "?b", high, "߿￿")
+				.parallel()
+				.collect(MoreCollectors.toCompactStringSet());
+		assertThat(set).containsExactly(high, low, reversed, pair, "a?", "?b", "߿￿");
+		assertThat(set.contains("a\uD801")).isFalse();
+		assertThat(set.contains("\uD800")).isFalse();
+		assertThat(set.contains(pair)).isTrue();
+		assertThat(set.contains(reversed)).isTrue();
+		assertThat(set).isEqualTo(ImmutableSet.of(high, low, reversed, pair, "a?", "?b", "߿￿"));
+	}
+
+	@Test
+	public void testSetInParallel() throws Exception {
+		Set<String> expected = IntStream.range(0, 100_000).mapToObj(i -> "id-" + i % 50_000).collect(Collectors.toSet());
+		CompactStringSet set = IntStream.range(0, 100_000).parallel().mapToObj(i -> "id-" + i % 50_000)
+				.collect(MoreCollectors.toCompactStringSet());
+		assertThat(set).hasSize(50_000);
+		assertThat(set).isEqualTo(expected);
+	}
+
+	@Test
+	public void testMap() throws Exception {
+		CompactStringMap<Integer> map = IntStream.range(0, 10_000).boxed().parallel()
+				.collect(MoreCollectors.toCompactStringMap(i -> "k" + i, i -> i));
+		assertThat(map).hasSize(10_000);
+		assertThat(map.get("k1234")).isEqualTo(1234);
+		assertThat(map.get("k10000")).isNull();
+		assertThat(map.keySet().contains("k9999")).isTrue();
+		assertThat(Stream.of("a", "b").collect(MoreCollectors.toCompactStringMap(s -> s, String::length)))
+				.isEqualTo(ImmutableMap.of("a", 1, "b", 1));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testMapRejectsDuplicateKeys() throws Exception {
+		Stream.of("a", "b", "a").collect(MoreCollectors.toCompactStringMap(s -> s, String::length));
+	}
+
+}
@@ -0,0 +1,107 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImmutableArrayTableTest {
+
+	@Test
+	public void testToImmutableArrayTable() throws Exception {
+		ImmutableArrayTable<String, Integer, String> table = Stream.of("a1", "a2", "b1", "b2", "c2")
+				.collect(MoreCollectors.toImmutableArrayTable(s -> s.substring(0, 1), s -> Integer.valueOf(s.substring(1)), s -> s));
+		assertThat(table.size()).isEqualTo(5);
+		assertThat(table.rowKeyList()).containsExactly("a", "b", "c");
+		assertThat(table.columnKeyList()).containsExactly(1, 2);
+		assertThat(table.get("b", 2)).isEqualTo("b2");
+		assertThat(table.get("c", 1)).isNull();
+		assertThat(table.at(2, 1)).isEqualTo("c2");
+		assertThat(table.contains("c", 1)).isFalse();
+		assertThat(table.row("a")).containsEntry(1, "a1").containsEntry(2, "a2").hasSize(2);
+		assertThat(table.column(1)).containsEntry("a", "a1").containsEntry("b", "b1").hasSize(2);
+		assertThat(table.values()).containsExactly("a1", "a2", "b1", "b2", "c2");
+		assertThat(table.rowMap().get("c")).containsOnlyKeys(2);
+	}
+
+	@Test
+	public void testToImmutableArrayTableWithKeyUniverses() throws Exception {
+		ImmutableList<Integer> rows = ImmutableList.of(0, 1, 2, 3);
+		ImmutableList<Integer> columns = ImmutableList.of(0, 1, 2, 3, 4);
+		ImmutableArrayTable<Integer, Integer, Integer> table = IntStream.range(0, 20).boxed().parallel()
+				.filter(i -> i != 7)
+				.collect(MoreCollectors.toImmutableArrayTable(i -> i / 5, i -> i % 5, i -> i, rows, columns));
+		assertThat(table.size()).isEqualTo(19);
+		assertThat(table.get(3, 4)).isEqualTo(19);
+		assertThat(table.get(1, 2)).isNull();
+		assertThat(table.column(2)).hasSize(3);
+		assertThat(table.rowKeySet()).containsExactly(0, 1, 2, 3);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableArrayTableWithUnknownKey() throws Exception {
+		Stream.of(1, 2, 3).collect(MoreCollectors.toImmutableArrayTable(i -> i, i -> i, i -> i, ImmutableList.of(1, 2), ImmutableList.of(1, 2, 3)));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableArrayTableWithDuplicateCell() throws Exception {
+		Stream.of(1, 2, 1).collect(MoreCollectors.toImmutableArrayTable(i -> i, i -> i, i -> i));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableArrayTableWithDuplicateCellInParallel() throws Exception {
+		ImmutableList<Integer> keys = ImmutableList.of(0, 1, 2, 3);
+		IntStream.range(0, 10_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableArrayTable(i -> i % 4, i -> i / 4 % 4, i -> i, keys, keys));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableArrayTableRejectsSparseCells() throws Exception {
+		IntStream.range(0, 1_000).boxed().collect(MoreCollectors.toImmutableArrayTable(i -> i, i -> i, i -> i));
+	}
+
+	@Test
+	public void testEqualsImmutableTable() throws Exception {
+		Table<Integer, Integer, Integer> table = IntStream.range(0, 6).boxed()
+				.collect(MoreCollectors.toImmutableArrayTable(i -> i / 3, i -> i % 3, i -> i));
+		ImmutableTable<Integer, Integer, Integer> expected = IntStream.range(0, 6).boxed()
+				.collect(MoreCollectors.toImmutableTable(i -> i / 3, i -> i % 3, i -> i));
+		assertThat(table).isEqualTo(expected);
+		assertThat(table.hashCode()).isEqualTo(expected.hashCode());
+		Map<Integer, Map<Integer, Integer>> rowMap = table.rowMap();
+		assertThat(rowMap).isEqualTo(expected.rowMap());
+		assertThat(table.columnMap()).isEqualTo(expected.columnMap());
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testIsImmutable() throws Exception {
+		Stream.of(1).collect(MoreCollectors.toImmutableArrayTable(i -> i, i -> i, i -> i)).put(2, 2, 2);
+	}
+
+}
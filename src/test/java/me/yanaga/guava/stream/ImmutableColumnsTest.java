@@ -0,0 +1,107 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.testng.annotations.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.fail;
+
+public class ImmutableColumnsTest {
+
+	private static final class Trade {
+
+		private final String symbol;
+
+		private final int quantity;
+
+		private final long timestamp;
+
+		private final double price;
+
+		Trade(String symbol, int quantity, long timestamp, double price) {
+			this.symbol = symbol;
+			this.quantity = quantity;
+			this.timestamp = timestamp;
+			this.price = price;
+		}
+
+	}
+
+	private static final ColumnSchema<Trade> SCHEMA = ColumnSchema.<Trade>builder()
+			.column("symbol", trade -> trade.symbol)
+			.intColumn("quantity", trade -> trade.quantity)
+			.longColumn("timestamp", trade -> trade.timestamp)
+			.doubleColumn("price", trade -> trade.price)
+			.build();
+
+	@Test
+	public void testColumns() throws Exception {
+		ImmutableColumns columns = IntStream.range(0, 3)
+				.mapToObj(i -> new Trade("S" + i, i * 10, 1000L + i, i + 0.5))
+				.collect(MoreCollectors.toImmutableColumns(SCHEMA));
+		assertThat(columns.size()).isEqualTo(3);
+		assertThat(columns.columnNames()).containsExactly("symbol", "quantity", "timestamp", "price");
+		assertThat(columns.intColumn("quantity")).isEqualTo(ImmutableIntArray.of(0, 10, 20));
+		assertThat(columns.longColumn("timestamp")).isEqualTo(ImmutableLongArray.of(1000L, 1001L, 1002L));
+		assertThat(columns.doubleColumn("price")).isEqualTo(ImmutableDoubleArray.of(0.5, 1.5, 2.5));
+		assertThat(columns.<String>column("symbol")).containsExactly("S0", "S1", "S2");
+		assertThat(columns.row(1).getInt("quantity")).isEqualTo(10);
+		assertThat(columns.row(1).<String>get("symbol")).isEqualTo("S1");
+		assertThat(columns.rows().get(2).toString()).isEqualTo("{symbol=S2, quantity=20, timestamp=1002, price=2.5}");
+	}
+
+	@Test
+	public void testParallelSegmentsKeepEncounterOrder() throws Exception {
+		ImmutableColumns columns = IntStream.range(0, 100_000).parallel()
+				.mapToObj(i -> new Trade("S" + i, i, i, i))
+				.collect(MoreCollectors.toImmutableColumns(SCHEMA));
+		assertThat(columns.intColumn("quantity")).isEqualTo(ImmutableIntArray.copyOf(IntStream.range(0, 100_000)));
+		assertThat(columns.longColumn("timestamp").stream().sum()).isEqualTo(4_999_950_000L);
+		assertThat(columns.<String>column("symbol").get(99_999)).isEqualTo("S99999");
+	}
+
+	@Test
+	public void testNullReferenceValue() throws Exception {
+		try {
+			IntStream.range(0, 3).mapToObj(i -> new Trade(i == 1 ? null : "S", i, i, i))
+					.collect(MoreCollectors.toImmutableColumns(SCHEMA));
+			fail("null value accepted");
+		} catch (NullPointerException e) {
+			assertThat(e.getMessage()).startsWith("null value in column symbol for record ");
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testWrongColumnType() throws Exception {
+		IntStream.range(0, 1).mapToObj(i -> new Trade("S", i, i, i))
+				.collect(MoreCollectors.toImmutableColumns(SCHEMA))
+				.intColumn("timestamp");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testDuplicateColumnNames() throws Exception {
+		ColumnSchema.<Trade>builder().intColumn("a", trade -> 1).intColumn("a", trade -> 2).build();
+	}
+
+}
@@ -0,0 +1,68 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMultiset;
+import org.testng.annotations.Test;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImmutableCompactListMultimapTest {
+
+	@Test
+	public void testLayout() throws Exception {
+		ImmutableCompactListMultimap<String, Integer> multimap = Stream.of("b1", "a2", "b3", "c4", "a5", "b6")
+				.collect(MoreCollectors.toImmutableCompactListMultimap(s -> s.substring(0, 1), s -> Integer.valueOf(s.substring(1))));
+		assertThat(multimap.size()).isEqualTo(6);
+		assertThat(multimap.keySet()).containsExactly("b", "a", "c");
+		assertThat(multimap.get("b")).containsExactly(1, 3, 6);
+		assertThat(multimap.get("a")).containsExactly(2, 5);
+		assertThat(multimap.get("z")).isEmpty();
+		assertThat(multimap.values()).containsExactly(1, 3, 6, 2, 5, 4);
+		assertThat(multimap.keys()).isEqualTo(ImmutableMultiset.of("a", "a", "b", "b", "b", "c"));
+		assertThat(multimap.containsEntry("a", 5)).isTrue();
+		assertThat(multimap.containsEntry("a", 4)).isFalse();
+		assertThat(multimap.containsValue(4)).isTrue();
+		assertThat(multimap.toString()).isEqualTo("{b=[1, 3, 6], a=[2, 5], c=[4]}");
+	}
+
+	@Test
+	public void testEqualsImmutableListMultimap() throws Exception {
+		ImmutableListMultimap<Integer, Integer> expected = IntStream.range(0, 10_000).boxed()
+				.collect(MoreCollectors.toImmutableListMultimap(i -> i % 97, i -> i));
+		ImmutableCompactListMultimap<Integer, Integer> multimap = IntStream.range(0, 10_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableCompactListMultimap(i -> i % 97, i -> i));
+		assertThat(multimap).isEqualTo(expected);
+		assertThat(multimap.hashCode()).isEqualTo(expected.hashCode());
+		assertThat(ImmutableList.copyOf(multimap.entries())).isEqualTo(expected.entries().asList());
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testPutIsUnsupported() throws Exception {
+		Stream.of(1).collect(MoreCollectors.toImmutableCompactListMultimap(i -> i, i -> i)).put(2, 2);
+	}
+
+}
@@ -0,0 +1,106 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImmutablePrimitiveArraysTest {
+
+	@Test
+	public void testImmutableIntArrayFromIntStream() throws Exception {
+		ImmutableIntArray array = IntStream.of(3, 1, 2)
+				.collect(ImmutableIntArray::builder, ImmutableIntArray.Builder::add, ImmutableIntArray.Builder::addAll)
+				.build();
+		assertThat(array.length()).isEqualTo(3);
+		assertThat(array.toArray()).containsExactly(3, 1, 2);
+		assertThat(array.get(0)).isEqualTo(3);
+		assertThat(array.contains(2)).isTrue();
+		assertThat(array.isSorted()).isFalse();
+		assertThat(array.sorted().toArray()).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	public void testImmutableIntArrayInParallel() throws Exception {
+		ImmutableIntArray array = ImmutableIntArray.copyOf(IntStream.range(0, 100_000).parallel());
+		assertThat(array.length()).isEqualTo(100_000);
+		for (int i = 0; i < array.length(); i++) {
+			assertThat(array.get(i)).isEqualTo(i);
+		}
+	}
+
+	@Test
+	public void testSortedImmutableIntArray() throws Exception {
+		ImmutableIntArray array = ImmutableIntArray.sortedCopyOf(IntStream.range(0, 1000).map(i -> 999 - i).parallel());
+		assertThat(array.isSorted()).isTrue();
+		assertThat(array.get(0)).isEqualTo(0);
+		assertThat(array.binarySearch(500)).isEqualTo(500);
+	}
+
+	@Test
+	public void testImmutableIntArrayAsList() throws Exception {
+		List<Integer> list = ImmutableIntArray.of(1, 2, 3).asList();
+		assertThat(list).containsExactly(1, 2, 3);
+		assertThat(list.indexOf(3)).isEqualTo(2);
+		assertThat(list).isEqualTo(Arrays.asList(1, 2, 3));
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testImmutableIntArrayAsListIsImmutable() throws Exception {
+		ImmutableIntArray.of(1, 2, 3).asList().set(0, 4);
+	}
+
+	@Test
+	public void testImmutableIntArrayEquality() throws Exception {
+		int[] values = {1, 2, 3};
+		ImmutableIntArray array = ImmutableIntArray.copyOf(values);
+		values[0] = 42;
+		assertThat(array).isEqualTo(ImmutableIntArray.of(1, 2, 3));
+		assertThat(array.hashCode()).isEqualTo(ImmutableIntArray.of(1, 2, 3).hashCode());
+		assertThat(ImmutableIntArray.copyOf(IntStream.empty())).isSameAs(ImmutableIntArray.of());
+	}
+
+	@Test
+	public void testImmutableLongArray() throws Exception {
+		ImmutableLongArray array = ImmutableLongArray.copyOf(LongStream.rangeClosed(1, 5).map(l -> l * 10_000_000_000L));
+		assertThat(array.length()).isEqualTo(5);
+		assertThat(array.get(4)).isEqualTo(50_000_000_000L);
+		assertThat(array.asList()).contains(10_000_000_000L);
+		assertThat(ImmutableLongArray.sortedCopyOf(LongStream.of(3, 2, 1)).toArray()).containsExactly(1L, 2L, 3L);
+	}
+
+	@Test
+	public void testImmutableDoubleArray() throws Exception {
+		ImmutableDoubleArray array = ImmutableDoubleArray.copyOf(DoubleStream.of(2.5, Double.NaN, -1.0));
+		assertThat(array.length()).isEqualTo(3);
+		assertThat(array.contains(Double.NaN)).isTrue();
+		assertThat(array.sorted().toArray()).containsExactly(-1.0, 2.5, Double.NaN);
+		assertThat(array.asList().get(0)).isEqualTo(2.5);
+	}
+
+}
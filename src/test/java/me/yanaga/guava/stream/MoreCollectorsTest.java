@@ -33,16 +33,56 @@ import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.ImmutableSortedMultiset;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Multisets;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.fail;
 
 public class MoreCollectorsTest {
 
+	private static final RecordCodec<Long> LONG_CODEC = new RecordCodec<Long>() {
+		@Override
+		public int recordSize() {
+			return Long.BYTES;
+		}
+
+		@Override
+		public void encode(Long value, ByteBuffer target) {
+			target.putLong(value);
+		}
+
+		@Override
+		public Long decode(ByteBuffer source) {
+			return source.getLong();
+		}
+	};
+
 	@Test
 	public void testToImmutableMap() throws Exception {
 		ImmutableMap<String, Integer> map = Stream.of("1", "2", "3")
@@ -97,6 +137,95 @@ public class MoreCollectorsTest {
 		assertThat(inverse.values()).containsOnly("1", "2", "3");
 	}
 
+	@Test
+	public void testToImmutableMapWithMergeFunction() throws Exception {
+		ImmutableMap<String, Integer> map = Stream.of("a", "bb", "cc", "a", "ddd")
+				.collect(MoreCollectors.toImmutableMap(String::valueOf, s -> 1, Integer::sum));
+		assertThat(map.keySet()).containsExactly("a", "bb", "cc", "ddd");
+		assertThat(map.get("a")).isEqualTo(2);
+		assertThat(map.get("bb")).isEqualTo(1);
+	}
+
+	@Test
+	public void testToImmutableMapWithMergeFunctionInParallel() throws Exception {
+		ImmutableMap<Integer, Integer> map = IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableMap(i -> i % 1000, i -> 1, Integer::sum));
+		assertThat(map.size()).isEqualTo(1000);
+		assertThat(map.values()).containsOnly(100);
+	}
+
+	@Test
+	public void testToImmutableMapFailsFastOnDuplicateKey() throws Exception {
+		AtomicInteger consumed = new AtomicInteger();
+		try {
+			Stream.of("a", "b", "a", "c", "d")
+					.peek(s -> consumed.incrementAndGet())
+					.collect(MoreCollectors.toImmutableMap(s -> s, s -> 1));
+			fail("duplicate key accepted");
+		} catch (IllegalArgumentException e) {
+			assertThat(e.getMessage()).contains("same key: a=1");
+			assertThat(consumed.get()).isEqualTo(3);
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableMapWithDuplicateKeyInParallel() throws Exception {
+		IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableMap(i -> i % 99_999, i -> i));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableBiMapWithDuplicateValue() throws Exception {
+		Stream.of("a", "b").collect(MoreCollectors.toImmutableBiMap(s -> s, s -> 1));
+	}
+
+	@Test
+	public void testToImmutableBiMapWithMergeFunction() throws Exception {
+		ImmutableBiMap<String, Integer> biMap = Stream.of("a", "b", "a", "a")
+				.collect(MoreCollectors.toImmutableBiMap(s -> s, s -> s.equals("a") ? 1 : 10, Integer::sum));
+		assertThat(biMap.get("a")).isEqualTo(3);
+		assertThat(biMap.inverse().get(10)).isEqualTo("b");
+	}
+
+	@Test
+	public void testToImmutableMapWithFewEntries() throws Exception {
+		assertThat(Stream.<String>empty().collect(MoreCollectors.toImmutableMap(s -> s, String::length))).isSameAs(ImmutableMap.of());
+		assertThat(Stream.<String>empty().collect(MoreCollectors.toImmutableBiMap(s -> s, String::length))).isSameAs(ImmutableBiMap.of());
+		ImmutableMap<String, Integer> map = Stream.of("ccc", "a", "bb")
+				.collect(MoreCollectors.toImmutableMap(s -> s, String::length));
+		assertThat(map.keySet()).containsExactly("ccc", "a", "bb");
+		assertThat(map.get("bb")).isEqualTo(2);
+		ImmutableBiMap<String, Integer> biMap = Stream.of("a", "bb", "ccc", "dddd", "eeeee")
+				.collect(MoreCollectors.toImmutableBiMap(s -> s, String::length));
+		assertThat(biMap.keySet()).containsExactly("a", "bb", "ccc", "dddd", "eeeee");
+		assertThat(biMap.inverse().get(5)).isEqualTo("eeeee");
+	}
+
+	@Test
+	public void testToImmutableSetWithFewElements() throws Exception {
+		assertThat(Stream.empty().collect(MoreCollectors.toImmutableSet())).isSameAs(ImmutableSet.of());
+		assertThat(Stream.of("a").collect(MoreCollectors.toImmutableSet())).containsExactly("a");
+		assertThat(Stream.of("b", "a", "b").collect(MoreCollectors.toImmutableSet())).containsExactly("b", "a");
+		assertThat(Stream.of("d", "c", "b", "a").collect(MoreCollectors.toImmutableSet())).containsExactly("d", "c", "b", "a");
+		assertThat(Stream.of("e", "d", "c", "b", "a").collect(MoreCollectors.toImmutableSet())).containsExactly("e", "d", "c", "b", "a");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableBiMapWithFewEntriesAndDuplicateValue() throws Exception {
+		Stream.of("a", "bb", "c").collect(MoreCollectors.toImmutableBiMap(s -> s, String::length));
+	}
+
+	@Test
+	public void testNoArgumentCollectorsAreShared() throws Exception {
+		assertThat(MoreCollectors.toImmutableList()).isSameAs(MoreCollectors.toImmutableList());
+		assertThat(MoreCollectors.toImmutableSet()).isSameAs(MoreCollectors.toImmutableSet());
+		assertThat(MoreCollectors.toImmutableSortedSet()).isSameAs(MoreCollectors.toImmutableSortedSet());
+		assertThat(MoreCollectors.toImmutableMultiset()).isSameAs(MoreCollectors.toImmutableMultiset());
+		assertThat(Stream.empty().collect(MoreCollectors.toImmutableList())).isSameAs(ImmutableList.of());
+		assertThat(Stream.of("a").collect(MoreCollectors.toImmutableSet())).isEqualTo(ImmutableSet.of("a"));
+		assertThat(Stream.of(3, 1, 2).collect(MoreCollectors.toImmutableSortedSet())).containsExactly(1, 2, 3);
+	}
+
 	@Test
 	public void testToImmutableList() throws Exception {
 		ImmutableList<String> list = Stream.of("a", "b", "c")
@@ -105,6 +234,51 @@ public class MoreCollectorsTest {
 		assertThat(list).containsExactly("a", "b", "c");
 	}
 
+	@Test
+	public void testToImmutableListInParallelKeepsEncounterOrder() throws Exception {
+		ImmutableList<Integer> list = IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableList());
+		assertThat(list.size()).isEqualTo(100_000);
+		for (int i = 0; i < list.size(); i++) {
+			assertThat(list.get(i)).isEqualTo(i);
+		}
+	}
+
+	@Test
+	public void testToImmutableListBatches() throws Exception {
+		List<ImmutableList<Integer>> batches = new ArrayList<>();
+		long count = IntStream.range(0, 25).boxed()
+				.collect(MoreCollectors.toImmutableListBatches(10, batches::add));
+		assertThat(count).isEqualTo(25);
+		assertThat(batches).hasSize(3);
+		assertThat(batches.get(0)).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+		assertThat(batches.get(2)).containsExactly(20, 21, 22, 23, 24);
+	}
+
+	@Test
+	public void testToImmutableListBatchesByBytes() throws Exception {
+		List<ImmutableList<String>> batches = new ArrayList<>();
+		Stream.of("aaaa", "bb", "cccc", "d", "eeeeee", "f", "gggggggg", "h")
+				.collect(MoreCollectors.toImmutableListBatches(100, 6, String::length, batches::add));
+		assertThat(batches).isEqualTo(ImmutableList.of(
+				ImmutableList.of("aaaa", "bb"),
+				ImmutableList.of("cccc", "d"),
+				ImmutableList.of("eeeeee"),
+				ImmutableList.of("f"),
+				ImmutableList.of("gggggggg"),
+				ImmutableList.of("h")));
+	}
+
+	@Test
+	public void testToImmutableListBatchesInParallel() throws Exception {
+		Queue<ImmutableList<Integer>> batches = new ConcurrentLinkedQueue<>();
+		long count = IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableListBatches(1000, batches::add));
+		assertThat(count).isEqualTo(100_000);
+		assertThat(batches.stream().mapToInt(List::size).max().getAsInt()).isLessThanOrEqualTo(1000);
+		assertThat(batches.stream().flatMap(List::stream).distinct().count()).isEqualTo(100_000);
+	}
+
 	@Test
 	public void testToImmutableSet() throws Exception {
 		ImmutableSet<String> set = Stream.of("a", "b", "c", "z", "c", "g", "a", "f")
@@ -160,6 +334,79 @@ public class MoreCollectorsTest {
 		assertThat(multiset.elementSet()).containsExactly("f", "c", "b", "a");
 	}
 
+	@Test
+	public void testToImmutableMultisetWithCounts() throws Exception {
+		ImmutableMultiset<String> multiset = Stream.of(MapEntry.of("a", "3"), MapEntry.of("b", "1"), MapEntry.of("a", "2"), MapEntry.of("c", "0"))
+				.collect(MoreCollectors.toImmutableMultiset(MapEntry::getKey, e -> Integer.parseInt(e.getValue())));
+		assertThat(multiset.size()).isEqualTo(6);
+		assertThat(multiset.count("a")).isEqualTo(5);
+		assertThat(multiset.count("b")).isEqualTo(1);
+		assertThat(multiset.elementSet()).containsExactly("a", "b");
+	}
+
+	@Test
+	public void testToImmutableSortedMultisetWithCounts() throws Exception {
+		ImmutableSortedMultiset<String> multiset = Stream.of(MapEntry.of("b", "3"), MapEntry.of("a", "1"), MapEntry.of("b", "2"))
+				.collect(MoreCollectors.toImmutableSortedMultiset(
+						Comparator.<String>naturalOrder(),
+						MapEntry::getKey,
+						e -> Integer.parseInt(e.getValue())));
+		assertThat(multiset.size()).isEqualTo(6);
+		assertThat(multiset.count("b")).isEqualTo(5);
+		assertThat(multiset.elementSet()).containsExactly("a", "b");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableMultisetWithNegativeCount() throws Exception {
+		Stream.of("a").collect(MoreCollectors.toImmutableMultiset(s -> s, s -> -1));
+	}
+
+	@Test
+	public void testToImmutableSortedMultisetInParallel() throws Exception {
+		ImmutableSortedMultiset<Integer> multiset = IntStream.range(0, 100_000).boxed().parallel()
+				.map(i -> i % 1000)
+				.collect(MoreCollectors.toImmutableSortedMultiset());
+		assertThat(multiset.size()).isEqualTo(100_000);
+		assertThat(multiset.firstEntry().getElement()).isEqualTo(0);
+		assertThat(multiset.count(999)).isEqualTo(100);
+	}
+
+	@Test
+	public void testToImmutableHeavyHitters() throws Exception {
+		ImmutableMultiset<String> exact = Stream.of("a", "b", "a", "c", "a", "b")
+				.collect(MoreCollectors.toImmutableHeavyHitters(0.3, 0.1));
+		assertThat(exact.entrySet().asList())
+				.isEqualTo(ImmutableList.of(Multisets.immutableEntry("a", 3), Multisets.immutableEntry("b", 2)));
+		ImmutableMultiset<String> heavyHitters = clickstream().stream()
+				.collect(MoreCollectors.toImmutableHeavyHitters(0.04, 0.01));
+		assertThat(heavyHitters.elementSet()).containsExactly("a", "b");
+		assertThat(heavyHitters.count("a")).isGreaterThanOrEqualTo(1000).isLessThanOrEqualTo(1115);
+		assertThat(heavyHitters.count("b")).isGreaterThanOrEqualTo(500).isLessThanOrEqualTo(615);
+	}
+
+	@Test
+	public void testToImmutableSortedHeavyHittersInParallel() throws Exception {
+		ImmutableSortedMultiset<String> heavyHitters = clickstream().parallelStream()
+				.collect(MoreCollectors.toImmutableSortedHeavyHitters(Comparator.<String>reverseOrder(), 0.04, 0.01));
+		assertThat(heavyHitters.elementSet()).containsExactly("b", "a");
+		assertThat(heavyHitters.count("a")).isGreaterThanOrEqualTo(1000).isLessThanOrEqualTo(1115);
+		assertThat(heavyHitters.count("b")).isGreaterThanOrEqualTo(500).isLessThanOrEqualTo(615);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableHeavyHittersRejectsSupportBelowErrorBound() throws Exception {
+		MoreCollectors.toImmutableHeavyHitters(0.01, 0.1);
+	}
+
+	private static List<String> clickstream() {
+		List<String> clickstream = new ArrayList<>();
+		IntStream.range(0, 1000).forEach(i -> clickstream.add("a"));
+		IntStream.range(0, 500).forEach(i -> clickstream.add("b"));
+		IntStream.range(0, 10_000).forEach(i -> clickstream.add("url" + i));
+		Collections.shuffle(clickstream, new Random(42));
+		return clickstream;
+	}
+
 	@Test
 	public void testToImmutableMultimap() throws Exception {
 		ImmutableMultimap<Integer, String> multimap = Stream.of(1, 2, 3, 4, 5, 1, 2, 3, 4, 1, 2, 3)
@@ -260,6 +507,560 @@ public class MoreCollectorsTest {
 		assertThat(table.values()).containsOnly("abc", "def", "ghi");
 	}
 
+	@Test
+	public void testToImmutableMapInParallel() throws Exception {
+		ImmutableMap<Integer, String> map = IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableMap(i -> i, i -> Integer.toString(i)));
+		assertThat(map.size()).isEqualTo(100_000);
+		assertThat(map.get(0)).isEqualTo("0");
+		assertThat(map.get(99_999)).isEqualTo("99999");
+	}
+
+	@Test
+	public void testToImmutableSetInParallel() throws Exception {
+		ImmutableSet<Integer> set = IntStream.range(0, 100_000).boxed().parallel()
+				.map(i -> i % 1000)
+				.collect(MoreCollectors.toImmutableSet());
+		assertThat(set.size()).isEqualTo(1000);
+		assertThat(set).contains(0, 500, 999);
+	}
+
+	@Test
+	public void testToImmutableMultisetInParallel() throws Exception {
+		ImmutableMultiset<Integer> multiset = IntStream.range(0, 100_000).boxed().parallel()
+				.map(i -> i % 1000)
+				.collect(MoreCollectors.toImmutableMultiset());
+		assertThat(multiset.size()).isEqualTo(100_000);
+		assertThat(multiset.elementSet().size()).isEqualTo(1000);
+		assertThat(multiset.count(0)).isEqualTo(100);
+	}
+
+	@Test
+	public void testToImmutableListMultimapInParallel() throws Exception {
+		ImmutableListMultimap<Integer, Integer> multimap = IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableListMultimap(i -> i % 1000, i -> i));
+		assertThat(multimap.size()).isEqualTo(100_000);
+		assertThat(multimap.keySet().size()).isEqualTo(1000);
+		assertThat(multimap.get(0).size()).isEqualTo(100);
+	}
+
+	@Test
+	public void testToImmutableTableInParallel() throws Exception {
+		ImmutableTable<Integer, Integer, Integer> table = IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableTable(i -> i / 1000, i -> i % 1000, i -> i));
+		assertThat(table.size()).isEqualTo(100_000);
+		assertThat(table.get(12, 345)).isEqualTo(12_345);
+	}
+
+	@Test
+	public void testToImmutableListWithExpectedSize() throws Exception {
+		ImmutableList<String> list = Stream.of("a", "b", "c")
+				.collect(MoreCollectors.toImmutableList(3));
+		assertThat(list).containsExactly("a", "b", "c");
+		assertThat(Stream.of("a", "b", "c", "d").collect(MoreCollectors.toImmutableList(2)))
+				.containsExactly("a", "b", "c", "d");
+	}
+
+	@Test
+	public void testToImmutableSetWithExpectedSize() throws Exception {
+		ImmutableSet<String> set = Stream.of("a", "b", "a", "c")
+				.collect(MoreCollectors.toImmutableSet(4));
+		assertThat(set).containsExactly("a", "b", "c");
+	}
+
+	@Test
+	public void testToImmutableMapWithExpectedSize() throws Exception {
+		ImmutableMap<String, Integer> map = Stream.of("1", "2", "3")
+				.collect(MoreCollectors.toImmutableMap(i -> i, Integer::valueOf, 3));
+		assertThat(map).containsEntry("1", 1).containsEntry("2", 2).containsEntry("3", 3);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableListWithNegativeExpectedSize() throws Exception {
+		MoreCollectors.toImmutableList(-1);
+	}
+
+	@Test
+	public void testCollectPresized() throws Exception {
+		ImmutableList<Integer> list = MoreCollectors.collectPresized(
+				IntStream.range(0, 10_000).boxed(), MoreCollectors::toImmutableList);
+		assertThat(list.size()).isEqualTo(10_000);
+		assertThat(list.get(9_999)).isEqualTo(9_999);
+		ImmutableList<Integer> parallelList = MoreCollectors.collectPresized(
+				IntStream.range(0, 10_000).boxed().parallel(), MoreCollectors::toImmutableList);
+		assertThat(parallelList).isEqualTo(list);
+		ImmutableMap<Integer, Integer> map = MoreCollectors.collectPresized(
+				IntStream.range(0, 10_000).boxed().parallel(), n -> MoreCollectors.toImmutableMap(i -> i, i -> -i, n));
+		assertThat(map.size()).isEqualTo(10_000);
+		assertThat(map.get(42)).isEqualTo(-42);
+		ImmutableSet<Integer> set = MoreCollectors.collectPresized(
+				Stream.iterate(0, i -> i + 1).limit(100), MoreCollectors::toImmutableSet);
+		assertThat(set.size()).isEqualTo(100);
+	}
+
+	@Test
+	public void testToImmutableSortedSetInParallel() throws Exception {
+		ImmutableSortedSet<Integer> set = IntStream.range(0, 100_000).map(i -> 99_999 - i).boxed().parallel()
+				.map(i -> i % 50_000)
+				.collect(MoreCollectors.toImmutableSortedSet());
+		assertThat(set.size()).isEqualTo(50_000);
+		assertThat(set.first()).isEqualTo(0);
+		assertThat(set.last()).isEqualTo(49_999);
+		assertThat(set.asList().get(1234)).isEqualTo(1234);
+	}
+
+	@Test
+	public void testToImmutableSortedMapInParallel() throws Exception {
+		ImmutableSortedMap<Integer, String> map = IntStream.range(0, 100_000).map(i -> 99_999 - i).boxed().parallel()
+				.collect(MoreCollectors.toImmutableSortedMap(i -> i, i -> Integer.toString(i), Comparator.<Integer>reverseOrder()));
+		assertThat(map.size()).isEqualTo(100_000);
+		assertThat(map.firstKey()).isEqualTo(99_999);
+		assertThat(map.lastEntry().getValue()).isEqualTo("0");
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableSortedMapWithDuplicateKeys() throws Exception {
+		Stream.of("a", "b", "a").collect(MoreCollectors.toImmutableSortedMap(s -> s, s -> 1));
+	}
+
+	@Test
+	public void testToImmutableSortedTableInParallel() throws Exception {
+		ImmutableTable<Integer, Integer, Integer> table = IntStream.range(0, 100_000).map(i -> 99_999 - i).boxed().parallel()
+				.collect(MoreCollectors.toImmutableSortedTable(i -> i / 1000, i -> i % 1000, i -> i));
+		assertThat(table.size()).isEqualTo(100_000);
+		assertThat(table.rowKeySet().iterator().next()).isEqualTo(0);
+		assertThat(table.cellSet().iterator().next().getValue()).isEqualTo(0);
+		assertThat(table.get(99, 999)).isEqualTo(99_999);
+	}
+
+	@Test
+	public void testGroupingByImmutable() throws Exception {
+		ImmutableMap<Integer, ImmutableList<String>> groups = Stream.of("a", "bb", "c", "dd", "eee")
+				.collect(MoreCollectors.groupingByImmutable(String::length));
+		assertThat(groups.keySet()).containsExactly(1, 2, 3);
+		assertThat(groups.get(1)).containsExactly("a", "c");
+		assertThat(groups.get(2)).containsExactly("bb", "dd");
+		assertThat(groups.get(3)).containsExactly("eee");
+	}
+
+	@Test
+	public void testGroupingByImmutableWithDownstream() throws Exception {
+		ImmutableMap<Integer, ImmutableSet<Integer>> groups = IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.groupingByImmutable(i -> i % 10, Collectors.mapping(i -> i % 100, MoreCollectors.toImmutableSet())));
+		assertThat(groups.size()).isEqualTo(10);
+		assertThat(groups.get(3)).hasSize(10).contains(3, 13, 93);
+	}
+
+	@Test
+	public void testGroupingByImmutableSorted() throws Exception {
+		ImmutableSortedMap<Integer, Long> groups = Stream.of("eee", "a", "bb", "c", "dd")
+				.collect(MoreCollectors.groupingByImmutableSorted(String::length, Collectors.counting()));
+		assertThat(groups.keySet()).containsExactly(1, 2, 3);
+		assertThat(groups.get(1)).isEqualTo(2L);
+	}
+
+	@Test
+	public void testGroupingByImmutableSortedWithComparator() throws Exception {
+		ImmutableSortedMap<Integer, ImmutableList<String>> groups = Stream.of("eee", "a", "bb", "c", "dd")
+				.collect(MoreCollectors.groupingByImmutableSorted(String::length, Comparator.<Integer>reverseOrder(), MoreCollectors.toImmutableList()));
+		assertThat(groups.keySet()).containsExactly(3, 2, 1);
+		assertThat(groups.get(2)).containsExactly("bb", "dd");
+	}
+
+	@Test
+	public void testGroupingByImmutableConcurrent() throws Exception {
+		ImmutableMap<Integer, ImmutableMultiset<Integer>> groups = IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.groupingByImmutableConcurrent(i -> i % 10, MoreCollectors.toImmutableMultiset()));
+		assertThat(groups.size()).isEqualTo(10);
+		assertThat(groups.get(7).size()).isEqualTo(10_000);
+		assertThat(groups.get(7).count(17)).isEqualTo(1);
+	}
+
+	@Test
+	public void testToImmutableTopK() throws Exception {
+		ImmutableSortedSet<Integer> topK = Stream.of(5, 3, 9, 3, 1, 7, 9, 2)
+				.collect(MoreCollectors.toImmutableTopK(3, Comparator.<Integer>naturalOrder()));
+		assertThat(topK).containsExactly(1, 2, 3);
+		assertThat(topK.comparator()).isEqualTo(Comparator.<Integer>naturalOrder());
+	}
+
+	@Test
+	public void testToImmutableBottomK() throws Exception {
+		ImmutableSortedSet<Integer> bottomK = Stream.of(5, 3, 9, 3, 1, 7, 9, 2)
+				.collect(MoreCollectors.toImmutableBottomK(3, Comparator.<Integer>naturalOrder()));
+		assertThat(bottomK).containsExactly(5, 7, 9);
+	}
+
+	@Test
+	public void testToImmutableTopKListKeepsDuplicatesAndEarliestTies() throws Exception {
+		ImmutableList<String> topK = Stream.of("bb", "a", "cc", "d", "eee", "f")
+				.collect(MoreCollectors.toImmutableTopKList(3, Comparator.comparing(String::length)));
+		assertThat(topK).containsExactly("a", "d", "f");
+		ImmutableList<String> bottomK = Stream.of("bb", "a", "cc", "d", "eee", "f")
+				.collect(MoreCollectors.toImmutableBottomKList(3, Comparator.comparing(String::length)));
+		assertThat(bottomK).containsExactly("bb", "cc", "eee");
+	}
+
+	@Test
+	public void testToImmutableTopKInParallel() throws Exception {
+		List<Integer> shuffled = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+		Collections.shuffle(shuffled, new Random(42));
+		assertThat(shuffled.parallelStream().collect(MoreCollectors.toImmutableTopKList(100, Comparator.<Integer>reverseOrder())))
+				.isEqualTo(IntStream.range(0, 100).map(i -> 99_999 - i).boxed().collect(Collectors.toList()));
+		assertThat(shuffled.parallelStream().collect(MoreCollectors.toImmutableBottomK(10, Comparator.<Integer>naturalOrder())))
+				.containsExactly(99_990, 99_991, 99_992, 99_993, 99_994, 99_995, 99_996, 99_997, 99_998, 99_999);
+		assertThat(Stream.of(1, 2).collect(MoreCollectors.toImmutableTopKList(0, Comparator.<Integer>naturalOrder()))).isEmpty();
+	}
+
+	@Test
+	public void testToImmutableSample() throws Exception {
+		ImmutableList<Integer> sample = IntStream.range(0, 10_000).boxed()
+				.collect(MoreCollectors.toImmutableSample(100));
+		assertThat(sample).hasSize(100);
+		assertThat(ImmutableSet.copyOf(sample)).hasSize(100);
+		assertThat(sample.stream().allMatch(i -> i >= 0 && i < 10_000)).isTrue();
+		assertThat(Stream.of(1, 2, 3).collect(MoreCollectors.toImmutableSample(5))).containsOnly(1, 2, 3);
+		assertThat(Stream.of(1, 2, 3).collect(MoreCollectors.toImmutableSample(0))).isEmpty();
+	}
+
+	@Test
+	public void testToImmutableSampleIsReproducibleWithSeed() throws Exception {
+		Collector<Integer, ?, ImmutableList<Integer>> collector = MoreCollectors.toImmutableSample(10, 42L);
+		ImmutableList<Integer> sample = IntStream.range(0, 10_000).boxed().collect(collector);
+		assertThat(IntStream.range(0, 10_000).boxed().collect(collector)).isEqualTo(sample);
+		assertThat(IntStream.range(0, 10_000).boxed().collect(MoreCollectors.toImmutableSample(10, 42L))).isEqualTo(sample);
+		assertThat(IntStream.range(0, 10_000).boxed().collect(MoreCollectors.toImmutableSample(10, 43L))).isNotEqualTo(sample);
+	}
+
+	@Test
+	public void testToImmutableSampleInParallelIsUniform() throws Exception {
+		ImmutableList<Integer> sample = IntStream.range(0, 100_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableSample(1_000));
+		assertThat(ImmutableSet.copyOf(sample)).hasSize(1_000);
+		double mean = sample.stream().mapToInt(Integer::intValue).average().getAsDouble();
+		assertThat(mean).isGreaterThan(45_000).isLessThan(55_000);
+	}
+
+	@Test
+	public void testToImmutableSampleWithSeedInParallelHasNoOffsetCorrelatedPairs() throws Exception {
+		// Splits of a parallel range are powers of two of at least 1024 elements here, so elements picked for drawing
+		// the same key at the same offset of their splits would be a multiple of 1024 apart, give or take a split index.
+		ImmutableList<Integer> sample = IntStream.range(0, 1 << 16).boxed().parallel()
+				.collect(MoreCollectors.toImmutableSample(100, 42L));
+		int aligned = 0;
+		for (int i = 0; i < sample.size(); i++) {
+			for (int j = i + 1; j < sample.size(); j++) {
+				int offset = Math.abs(sample.get(i) - sample.get(j)) % 1024;
+				if (Math.min(offset, 1024 - offset) <= 2) {
+					aligned++;
+				}
+			}
+		}
+		// About 24 of the 4950 pairs are expected by chance.
+		assertThat(aligned).isLessThan(60);
+	}
+
+	@Test
+	public void testToImmutableWeightedSample() throws Exception {
+		ImmutableList<Integer> sample = IntStream.range(0, 10_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableWeightedSample(50, i -> i == 1234 ? 1e12 : i % 2, 7L));
+		assertThat(sample).hasSize(50);
+		assertThat(sample).contains(1234);
+		assertThat(sample.stream().allMatch(i -> i == 1234 || i % 2 == 1)).isTrue();
+		assertThat(Stream.of(1, 2, 3).collect(MoreCollectors.toImmutableWeightedSample(5, i -> i == 2 ? 0 : 1))).containsOnly(1, 3);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testToImmutableWeightedSampleRejectsNegativeWeights() throws Exception {
+		Stream.of(1, 2).collect(MoreCollectors.toImmutableWeightedSample(1, i -> -i));
+	}
+
+	@Test
+	public void testToImmutableMappedList() throws Exception {
+		ImmutableMappedList<Long> list = LongStream.range(0, 100_000).boxed()
+				.collect(MoreCollectors.toImmutableMappedList(LONG_CODEC));
+		assertThat(list).hasSize(100_000);
+		assertThat(list.get(0)).isEqualTo(0L);
+		assertThat(list.get(54_321)).isEqualTo(54_321L);
+		assertThat(list.get(99_999)).isEqualTo(99_999L);
+		assertThat(list.subList(10, 13)).containsExactly(10L, 11L, 12L);
+	}
+
+	@Test
+	public void testToImmutableMappedListInParallel() throws Exception {
+		ImmutableMappedList<Long> list = LongStream.range(0, 200_000).boxed().parallel()
+				.collect(MoreCollectors.toImmutableMappedList(LONG_CODEC));
+		assertThat(list).isEqualTo(LongStream.range(0, 200_000).boxed().collect(Collectors.toList()));
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void testToImmutableMappedListRejectsCodecWritingWrongSize() throws Exception {
+		Stream.of(1L).collect(MoreCollectors.toImmutableMappedList(new RecordCodec<Long>() {
+			@Override
+			public int recordSize() {
+				return 4;
+			}
+
+			@Override
+			public void encode(Long value, ByteBuffer target) {
+				target.putLong(value);
+			}
+
+			@Override
+			public Long decode(ByteBuffer source) {
+				return source.getLong();
+			}
+		}));
+	}
+
+	@Test
+	public void testToImmutableMappedListLeavesNoFilesBehind() throws Exception {
+		Path directory = Files.createTempDirectory("guava-stream-test");
+		try {
+			ImmutableMappedList<Long> list = LongStream.range(0, 10_000).boxed()
+					.collect(MoreCollectors.toImmutableMappedList(LONG_CODEC, directory));
+			assertThat(list.get(9_999)).isEqualTo(9_999L);
+			try {
+				LongStream.range(0, 10_000).boxed()
+						.peek(i -> {
+							if (i == 5_000) {
+								throw new IllegalStateException("downstream failure");
+							}
+						})
+						.collect(MoreCollectors.toImmutableMappedList(LONG_CODEC, directory));
+				fail("failure swallowed");
+			} catch (IllegalStateException e) {
+				assertThat(e.getMessage()).isEqualTo("downstream failure");
+			}
+			try (Stream<Path> files = Files.list(directory)) {
+				assertThat(files.count()).isEqualTo(0);
+			}
+		} finally {
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	@Test
+	public void testToImmutableMappedListClosesChannelsOfFailedStreams() throws Exception {
+		Path descriptors = Paths.get("/proc/self/fd");
+		if (!Files.isDirectory(descriptors)) {
+			return;
+		}
+		Path directory = Files.createTempDirectory("guava-stream-test");
+		try {
+			try {
+				LongStream.range(0, 10_000).boxed()
+						.peek(i -> {
+							if (i == 5_000) {
+								throw new IllegalStateException("downstream failure");
+							}
+						})
+						.collect(MoreCollectors.toImmutableMappedList(LONG_CODEC, directory));
+				fail("failure swallowed");
+			} catch (IllegalStateException e) {
+				assertThat(openIn(descriptors, directory)).isGreaterThan(0);
+			}
+			for (int i = 0; i < 100 && openIn(descriptors, directory) > 0; i++) {
+				System.gc();
+				Thread.sleep(10);
+			}
+			assertThat(openIn(descriptors, directory)).isEqualTo(0);
+		} finally {
+			Files.deleteIfExists(directory);
+		}
+	}
+
+	private static long openIn(Path descriptors, Path directory) throws IOException {
+		try (Stream<Path> links = Files.list(descriptors)) {
+			return links.filter(link -> {
+				try {
+					return Files.readSymbolicLink(link).toString().startsWith(directory.toString());
+				} catch (IOException e) {
+					return false;
+				}
+			}).count();
+		}
+	}
+
+	@Test
+	public void testInstrument() throws Exception {
+		List<CollectorMetrics> reports = new ArrayList<>();
+		ImmutableList<Integer> list = Stream.of(1, 2, 3)
+				.collect(MoreCollectors.instrument(MoreCollectors.toImmutableList(), reports::add));
+		assertThat(list).containsExactly(1, 2, 3);
+		assertThat(reports).hasSize(1);
+		CollectorMetrics metrics = reports.get(0);
+		assertThat(metrics.supplierCalls()).isEqualTo(1);
+		assertThat(metrics.accumulations()).isEqualTo(3);
+		assertThat(metrics.combines()).isEqualTo(0);
+		assertThat(metrics.splitSizes()).isEqualTo(ImmutableLongArray.of(3));
+	}
+
+	@Test
+	public void testInstrumentInParallel() throws Exception {
+		List<CollectorMetrics> reports = new ArrayList<>();
+		ImmutableSet<Integer> set = IntStream.range(0, 10_000).boxed().parallel()
+				.collect(MoreCollectors.instrument(MoreCollectors.toImmutableSet(), reports::add));
+		assertThat(set).hasSize(10_000);
+		CollectorMetrics metrics = reports.get(0);
+		assertThat(metrics.accumulations()).isEqualTo(10_000);
+		assertThat(metrics.splitSizes().stream().sum()).isEqualTo(10_000);
+		assertThat(metrics.splitSizes().length()).isEqualTo((int) metrics.supplierCalls());
+		assertThat(metrics.combines()).isEqualTo(metrics.supplierCalls() - 1);
+	}
+
+	@Test
+	public void testBoundedInterner() throws Exception {
+		BoundedInterner<String> interner = BoundedInterner.create(2);
+		String canonical = new String("BR");
+		assertThat(interner.intern(canonical)).isSameAs(canonical);
+		assertThat(interner.intern(new String("BR"))).isSameAs(canonical);
+		interner.intern("US");
+		interner.intern("PT");
+		assertThat(interner.size()).isLessThanOrEqualTo(2);
+	}
+
+	@Test
+	public void testToImmutableMapInterned() throws Exception {
+		BoundedInterner<String> interner = BoundedInterner.create(100);
+		ImmutableMap<Integer, String> map = IntStream.range(0, 10).boxed()
+				.collect(MoreCollectors.toImmutableMapInterned(i -> i, i -> new String(i % 2 == 0 ? "even" : "odd"), BoundedInterner.create(100), interner));
+		assertThat(map.get(0)).isSameAs(map.get(2)).isSameAs(interner.intern("even"));
+		assertThat(map.get(1)).isSameAs(map.get(9)).isEqualTo("odd");
+	}
+
+	@Test
+	public void testToImmutableSetInterned() throws Exception {
+		BoundedInterner<String> interner = BoundedInterner.create(100);
+		String canonical = interner.intern(new String("BR"));
+		ImmutableSet<String> set = Stream.of(new String("BR"), "US")
+				.collect(MoreCollectors.toImmutableSetInterned(interner));
+		assertThat(set).containsOnly("BR", "US");
+		assertThat(set.asList().get(set.asList().indexOf("BR"))).isSameAs(canonical);
+	}
+
+	@Test
+	public void testToImmutableSetMultimapInterned() throws Exception {
+		BoundedInterner<String> keys = BoundedInterner.create(100);
+		BoundedInterner<String> values = BoundedInterner.create(100);
+		ImmutableSetMultimap<String, String> multimap = IntStream.range(0, 100).boxed().parallel()
+				.collect(MoreCollectors.toImmutableSetMultimapInterned(i -> new String("k" + i % 3), i -> new String("v" + i % 7), keys, values));
+		assertThat(multimap.keySet()).containsOnly("k0", "k1", "k2");
+		for (Map.Entry<String, String> entry : multimap.entries()) {
+			assertThat(entry.getKey()).isSameAs(keys.intern(entry.getKey()));
+			assertThat(entry.getValue()).isSameAs(values.intern(entry.getValue()));
+		}
+	}
+
+	@Test
+	public void testToPersistentHashMap() throws Exception {
+		PersistentHashMap<Integer, Integer> base = IntStream.range(0, 10_000).boxed()
+				.collect(MoreCollectors.toPersistentHashMap(i -> i, i -> i));
+		assertThat(base).hasSize(10_000);
+		PersistentHashMap<Integer, Integer> updated = Stream.of(5, 10_000, 5)
+				.collect(MoreCollectors.toPersistentHashMap(base, i -> i, i -> -i));
+		assertThat(updated).hasSize(10_001);
+		assertThat(updated.get(5)).isEqualTo(-5);
+		assertThat(base.get(5)).isEqualTo(5);
+		PersistentHashMap<Integer, Integer> merged = IntStream.range(0, 20_000).boxed().parallel()
+				.collect(MoreCollectors.toPersistentHashMap(base, i -> i % 10_000, i -> 1, Integer::sum));
+		assertThat(merged.get(0)).isEqualTo(2);
+		assertThat(merged.get(9_999)).isEqualTo(10_001);
+	}
+
+	@Test
+	public void testToImmutableListAsync() throws Exception {
+		CompletableFuture<Integer> slow = new CompletableFuture<>();
+		CompletableFuture<ImmutableList<Integer>> result = Stream.of(CompletableFuture.completedFuture(1), slow, CompletableFuture.completedFuture(3))
+				.collect(MoreCollectors.toImmutableListAsync());
+		assertThat(result.isDone()).isFalse();
+		slow.complete(2);
+		assertThat(result.get()).containsExactly(1, 2, 3);
+	}
+
+	@Test
+	public void testToImmutableListAsyncWithBoundedConcurrency() throws Exception {
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			ImmutableList<Integer> result = IntStream.range(0, 1_000).boxed().parallel()
+					.collect(MoreCollectors.toImmutableListAsync(i -> CompletableFuture.supplyAsync(() -> {
+						maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+						inFlight.decrementAndGet();
+						return i * 2;
+					}, executor), 4))
+					.get(10, TimeUnit.SECONDS);
+			assertThat(result).isEqualTo(IntStream.range(0, 1_000).map(i -> i * 2).boxed().collect(Collectors.toList()));
+			assertThat(maxInFlight.get()).isLessThanOrEqualTo(4);
+		} finally {
+			executor.shutdown();
+		}
+		assertThat(IntStream.range(0, 100_000).boxed()
+				.collect(MoreCollectors.toImmutableListAsync(CompletableFuture::completedFuture, 16))
+				.get()).hasSize(100_000);
+	}
+
+	@Test
+	public void testToImmutableListAsyncStartsStagesWhileAccumulating() throws Exception {
+		AtomicInteger started = new AtomicInteger();
+		List<Integer> startedBefore = new ArrayList<>();
+		CompletableFuture<ImmutableList<Integer>> result = IntStream.range(0, 6).boxed()
+				.peek(i -> startedBefore.add(started.get()))
+				.collect(MoreCollectors.toImmutableListAsync(i -> {
+					started.incrementAndGet();
+					return CompletableFuture.completedFuture(i);
+				}, 2));
+		assertThat(startedBefore).containsExactly(0, 1, 2, 3, 4, 5);
+		assertThat(result.get()).containsExactly(0, 1, 2, 3, 4, 5);
+		CompletableFuture<Integer> first = new CompletableFuture<>();
+		AtomicInteger launched = new AtomicInteger();
+		CompletableFuture<ImmutableList<Integer>> bounded = Stream.of(first, CompletableFuture.completedFuture(2))
+				.collect(MoreCollectors.toImmutableListAsync(future -> {
+					launched.incrementAndGet();
+					return future;
+				}, 1));
+		assertThat(launched.get()).isEqualTo(1);
+		first.complete(1);
+		assertThat(launched.get()).isEqualTo(2);
+		assertThat(bounded.get()).containsExactly(1, 2);
+	}
+
+	@Test
+	public void testToImmutableListAsyncFailsFast() throws Exception {
+		CompletableFuture<Integer> failed = new CompletableFuture<>();
+		failed.completeExceptionally(new IllegalStateException("boom"));
+		CompletableFuture<ImmutableList<Integer>> result = Stream.of(new CompletableFuture<Integer>(), failed)
+				.collect(MoreCollectors.toImmutableListAsync());
+		assertThat(result.isCompletedExceptionally()).isTrue();
+	}
+
+	@Test
+	public void testToImmutableMapAsync() throws Exception {
+		ImmutableMap<Integer, String> map = Stream.of(1, 2, 3)
+				.collect(MoreCollectors.toImmutableMapAsync(i -> i, i -> CompletableFuture.completedFuture("v" + i), 2))
+				.get();
+		assertThat(map).isEqualTo(ImmutableMap.of(1, "v1", 2, "v2", 3, "v3"));
+		ImmutableMap<String, Integer> map2 = Stream.of(CompletableFuture.completedFuture("a"), CompletableFuture.completedFuture("bb"))
+				.collect(MoreCollectors.toImmutableMapAsync(s -> s, String::length))
+				.get();
+		assertThat(map2).isEqualTo(ImmutableMap.of("a", 1, "bb", 2));
+		assertThat(Stream.of(1, 1)
+				.collect(MoreCollectors.toImmutableMapAsync(i -> i, i -> CompletableFuture.completedFuture(i), 2))
+				.isCompletedExceptionally()).isTrue();
+	}
+
+	@Test
+	public void testNaturalOrderSortedCollectorsOverRadixKeys() throws Exception {
+		List<Integer> shuffled = IntStream.range(-50_000, 50_000).boxed().collect(Collectors.toList());
+		Collections.shuffle(shuffled, new Random(42));
+		assertThat(shuffled.parallelStream().collect(MoreCollectors.<Integer>toImmutableSortedSet()).asList())
+				.isEqualTo(IntStream.range(-50_000, 50_000).boxed().collect(Collectors.toList()));
+		ImmutableSortedMap<String, Integer> map = shuffled.stream()
+				.collect(MoreCollectors.toImmutableSortedMap(i -> "k" + i, i -> i));
+		assertThat(map.keySet().asList()).isEqualTo(shuffled.stream().map(i -> "k" + i).sorted().collect(Collectors.toList()));
+	}
+
 	private static class MapEntry {
 
 		private final String key;
@@ -0,0 +1,111 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Table;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MoreStreamsTest {
+
+	@Test
+	public void testBatches() throws Exception {
+		List<ImmutableList<Integer>> batches = MoreStreams.batches(Stream.of(1, 2, 3, 4, 5), 2)
+				.collect(Collectors.toList());
+		assertThat(batches).containsExactly(ImmutableList.of(1, 2), ImmutableList.of(3, 4), ImmutableList.of(5));
+	}
+
+	@Test
+	public void testBatchesInParallelKeepEncounterOrder() throws Exception {
+		List<ImmutableList<Integer>> batches = MoreStreams.batches(IntStream.range(0, 100_000).boxed().parallel(), 1000)
+				.collect(Collectors.toList());
+		assertThat(batches.stream().mapToInt(List::size).max().getAsInt()).isLessThanOrEqualTo(1000);
+		assertThat(batches.stream().flatMap(List::stream).collect(Collectors.toList()))
+				.isEqualTo(IntStream.range(0, 100_000).boxed().collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testStreamMultisetSplitsByCount() throws Exception {
+		ImmutableMultiset<String> multiset = ImmutableMultiset.<String>builder()
+				.addCopies("a", 100_000)
+				.addCopies("b", 3)
+				.addCopies("c", 100_000)
+				.build();
+		assertThat(MoreStreams.stream(multiset).collect(Collectors.toList())).isEqualTo(ImmutableList.copyOf(multiset));
+		assertThat(MoreStreams.stream(multiset).parallel().filter("b"::equals).count()).isEqualTo(3);
+		Spliterator<String> spliterator = MoreStreams.stream(multiset).spliterator();
+		Spliterator<String> prefix = spliterator.trySplit();
+		assertThat(prefix.estimateSize()).isEqualTo(100_001);
+		assertThat(spliterator.estimateSize()).isEqualTo(100_002);
+		assertThat(spliterator.hasCharacteristics(Spliterator.SUBSIZED)).isTrue();
+	}
+
+	@Test
+	public void testEntries() throws Exception {
+		ImmutableListMultimap<Integer, Integer> multimap = IntStream.range(0, 10_000).boxed()
+				.collect(MoreCollectors.toImmutableListMultimap(i -> i % 7, i -> i));
+		assertThat(MoreStreams.entries(multimap).parallel().collect(Collectors.toList()))
+				.isEqualTo(multimap.entries().asList());
+	}
+
+	@Test
+	public void testCellsSplitByRows() throws Exception {
+		ImmutableTable<Integer, Integer, Integer> table = IntStream.range(0, 1_000).boxed()
+				.collect(MoreCollectors.toImmutableTable(i -> i / 10, i -> i % 10, i -> i));
+		assertThat(MoreStreams.cells(table).parallel().collect(Collectors.toList()))
+				.isEqualTo(table.cellSet().asList());
+		Spliterator<Table.Cell<Integer, Integer, Integer>> spliterator = MoreStreams.cells(table).spliterator();
+		Spliterator<Table.Cell<Integer, Integer, Integer>> prefix = spliterator.trySplit();
+		assertThat(prefix.estimateSize() % 10).isEqualTo(0);
+		assertThat(spliterator.estimateSize() % 10).isEqualTo(0);
+	}
+
+	@Test
+	public void testTrySplitEmpty() throws Exception {
+		assertThat(MoreStreams.cells(ImmutableTable.<Integer, Integer, Integer>of()).spliterator().trySplit()).isNull();
+		assertThat(MoreStreams.stream(ImmutableMultiset.<String>of()).spliterator().trySplit()).isNull();
+	}
+
+	@Test
+	public void testTrySplitExhausted() throws Exception {
+		Spliterator<Table.Cell<Integer, Integer, Integer>> cells = MoreStreams.cells(ImmutableTable.of(1, 1, 1)).spliterator();
+		assertThat(cells.tryAdvance(cell -> { })).isTrue();
+		assertThat(cells.trySplit()).isNull();
+		Spliterator<String> elements = MoreStreams.stream(ImmutableMultiset.of("a", "a", "b")).spliterator();
+		assertThat(elements.tryAdvance(element -> { })).isTrue();
+		assertThat(elements.tryAdvance(element -> { })).isTrue();
+		assertThat(elements.trySplit()).isNull();
+		assertThat(elements.tryAdvance(element -> { })).isTrue();
+		assertThat(elements.trySplit()).isNull();
+	}
+
+}
@@ -0,0 +1,92 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PersistentHashMapTest {
+
+	@Test
+	public void testWithAndWithout() throws Exception {
+		PersistentHashMap<String, Integer> empty = PersistentHashMap.of();
+		PersistentHashMap<String, Integer> one = empty.with("a", 1);
+		PersistentHashMap<String, Integer> two = one.with("b", 2);
+		assertThat(empty).isEmpty();
+		assertThat(one).isEqualTo(ImmutableMap.of("a", 1));
+		assertThat(two).isEqualTo(ImmutableMap.of("a", 1, "b", 2));
+		assertThat(two.with("a", 3)).isEqualTo(ImmutableMap.of("a", 3, "b", 2));
+		assertThat(two.without("a")).isEqualTo(ImmutableMap.of("b", 2));
+		assertThat(two.without("c")).isSameAs(two);
+		assertThat(one.with("a", 1)).isSameAs(one);
+	}
+
+	@Test
+	public void testAgainstHashMap() throws Exception {
+		Random random = new Random(42);
+		Map<Integer, Integer> expected = new HashMap<>();
+		PersistentHashMap<Integer, Integer> map = PersistentHashMap.of();
+		for (int i = 0; i < 50_000; i++) {
+			int key = random.nextInt(20_000);
+			if (random.nextInt(4) == 0) {
+				expected.remove(key);
+				map = map.without(key);
+			} else {
+				expected.put(key, i);
+				map = map.with(key, i);
+			}
+		}
+		assertThat(map).isEqualTo(expected);
+		assertThat(map.size()).isEqualTo(expected.size());
+		assertThat(map.hashCode()).isEqualTo(expected.hashCode());
+	}
+
+	@Test
+	public void testCollidingHashes() throws Exception {
+		PersistentHashMap<String, Integer> map = PersistentHashMap.<String, Integer>of()
+				.with("Aa", 1)
+				.with("BB", 2)
+				.with("C#", 3);
+		assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+		assertThat(map).isEqualTo(ImmutableMap.of("Aa", 1, "BB", 2, "C#", 3));
+		assertThat(map.without("Aa")).isEqualTo(ImmutableMap.of("BB", 2, "C#", 3));
+	}
+
+	@Test
+	public void testPreviousVersionsAreUnchanged() throws Exception {
+		PersistentHashMap<Integer, Integer> base = PersistentHashMap.copyOf(ImmutableMap.of(1, 1, 2, 2));
+		PersistentHashMap<Integer, Integer> updated = base.withAll(ImmutableMap.of(2, 20, 3, 30).entrySet(), null);
+		assertThat(base).isEqualTo(ImmutableMap.of(1, 1, 2, 2));
+		assertThat(updated).isEqualTo(ImmutableMap.of(1, 1, 2, 20, 3, 30));
+	}
+
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void testPutIsUnsupported() throws Exception {
+		PersistentHashMap.<String, Integer>of().put("a", 1);
+	}
+
+}
@@ -0,0 +1,101 @@
+package me.yanaga.guava.stream;
+
+/*
+ * #%L
+ * guava-stream
+ * %%
+ * Copyright (C) 2015 Edson Yanaga
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+import org.testng.annotations.Test;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RadixSortTest {
+
+	private final Random random = new Random(42);
+
+	@Test
+	public void testIntegers() throws Exception {
+		Object[] elements = new Object[10_000];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = random.nextInt();
+		}
+		elements[0] = Integer.MIN_VALUE;
+		elements[1] = Integer.MAX_VALUE;
+		assertSortsLikeComparator(elements, e -> e);
+	}
+
+	@Test
+	public void testLongs() throws Exception {
+		Object[] elements = new Object[10_000];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = i % 2 == 0 ? random.nextLong() : (long) random.nextInt(1000) - 500;
+		}
+		assertSortsLikeComparator(elements, e -> e);
+	}
+
+	@Test
+	public void testStrings() throws Exception {
+		Object[] elements = new Object[10_000];
+		for (int i = 0; i < elements.length; i++) {
+			StringBuilder builder = new StringBuilder("prefix-");
+			int length = random.nextInt(6);
+			for (int j = 0; j < length; j++) {
+				builder.append((char) ('a' + random.nextInt(3)));
+			}
+			elements[i] = builder.toString();
+		}
+		elements[0] = "";
+		elements[1] = "ÿ";
+		assertSortsLikeComparator(elements, e -> e);
+	}
+
+	@Test
+	public void testStableOnEqualKeys() throws Exception {
+		Object[] elements = new Object[1_000];
+		for (int i = 0; i < elements.length; i++) {
+			elements[i] = new SimpleImmutableEntry<>(random.nextInt(10), i);
+		}
+		assertSortsLikeComparator(elements, e -> ((Map.Entry<?, ?>) e).getKey());
+	}
+
+	@Test
+	public void testRejectsUnsupportedKeys() throws Exception {
+		Object[] elements = new Object[1_000];
+		Arrays.fill(elements, "a");
+		elements[500] = "Ā";
+		assertThat(RadixSort.sort(elements, elements.length, Function.identity())).isFalse();
+		elements[500] = 1;
+		assertThat(RadixSort.sort(elements, elements.length, Function.identity())).isFalse();
+		assertThat(elements[500]).isEqualTo(1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void assertSortsLikeComparator(Object[] elements, Function<Object, ?> key) {
+		Object[] expected = elements.clone();
+		Arrays.sort(expected, (e, e2) -> ((Comparable<Object>) key.apply(e)).compareTo(key.apply(e2)));
+		assertThat(RadixSort.sort(elements, elements.length, key)).isTrue();
+		assertThat(elements).containsExactly(expected);
+	}
+
+}